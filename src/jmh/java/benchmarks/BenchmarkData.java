@@ -0,0 +1,88 @@
+package benchmarks;
+
+import models.Transaction;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
+import utils.SignatureUtil;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates realistic, signed transactions for the benchmarks
+ */
+final class BenchmarkData {
+
+    //Curve the network signs with
+    private static final X9ECParameters CURVE = SECNamedCurves.getByName("secp256k1");
+    //Domain of the curve
+    private static final ECDomainParameters DOMAIN =
+            new ECDomainParameters(CURVE.getCurve(), CURVE.getG(), CURVE.getN(), CURVE.getH());
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates signed transactions spread round robin over the given number of senders
+     *
+     * @param count       Number of transactions
+     * @param senderCount Number of distinct senders (key pairs)
+     * @return Signed transactions with distinct nonces and fees
+     */
+    static List<Transaction> signedTransactions(int count, int senderCount) {
+        List<KeyPair> keyPairs = new ArrayList<>();
+        for (int i = 0; i < senderCount; i++) {
+            keyPairs.add(SignatureUtil.generateKeyPair());
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            KeyPair keyPair = keyPairs.get(i % senderCount);
+            Transaction transaction = new Transaction(
+                    SignatureUtil.getCoinbaseFromPublicKey(keyPair),
+                    SignatureUtil.getCoinbaseFromPublicKey(keyPairs.get((i + 1) % senderCount)),
+                    1.0 + i,
+                    i,
+                    0.0000001 * (i % 1000 + 1),
+                    10.0);
+            transaction.setSignature(sign(transaction, keyPair));
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Signs the payload of a transaction the same way the wallet does
+     *
+     * @param transaction Transaction to sign
+     * @param keyPair     Key pair of the sender
+     * @return DER encoded signature
+     */
+    static byte[] sign(Transaction transaction, KeyPair keyPair) {
+        try {
+            BigInteger d = ((BCECPrivateKey) keyPair.getPrivate()).getD();
+            ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+            signer.init(true, new ECPrivateKeyParameters(d, DOMAIN));
+            BigInteger[] signature = signer.generateSignature(transaction.asJSONString().getBytes(StandardCharsets.UTF_8));
+
+            ASN1EncodableVector vector = new ASN1EncodableVector();
+            vector.add(new ASN1Integer(signature[0]));
+            vector.add(new ASN1Integer(signature[1]));
+            return new DERSequence(vector).getEncoded();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not sign transaction", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import accounts.AccountStorage;
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import utils.SizeUtil;
+import utils.VerificationUtil;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the verification of a full (1 MB) block with sequential and parallel signature checks and with and
+ * without cached signatures
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockVerificationBenchmark {
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    //Signatures were already verified on submission (e.g. for blocks of transactions from the own mempool)
+    @Param({"false", "true"})
+    private boolean cachedSignatures;
+
+    private Block block;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Blockchain blockchain = new Blockchain();
+        //Every header fulfills this difficulty, the benchmark measures the verification and not mining
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(255));
+        DependencyManager.injectBlockchain(blockchain);
+
+        List<Transaction> transactions = BenchmarkData.signedTransactions(SizeUtil.calculateTransactionCapacity(), 64);
+        AccountStorage accountStorage = DependencyManager.getAccountStorage();
+        transactions.forEach(transaction -> accountStorage.getAccount(transaction.getSender()).addBalance(1.0E12));
+
+        block = new Block(transactions, blockchain.getPreviousHash());
+        VerificationUtil.setParallelVerification(parallel);
+        VerificationUtil.getSignatureCache().clear();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        if (!cachedSignatures) {
+            VerificationUtil.getSignatureCache().clear();
+        }
+    }
+
+    @Benchmark
+    public boolean verifyBlock() {
+        return VerificationUtil.verifyBlock(block);
+    }
+}
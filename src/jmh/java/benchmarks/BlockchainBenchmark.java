@@ -0,0 +1,60 @@
+package benchmarks;
+
+import accounts.AccountStorage;
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import utils.SignatureUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks adding a full block (verification, chain and account updates) to the blockchain
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockchainBenchmark {
+
+    @Param({"100", "1000", "3300"})
+    private int transactionCount;
+
+    private Blockchain blockchain;
+    private List<Transaction> transactions;
+    private byte[] coinbase;
+    private Block block;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        blockchain = new Blockchain();
+        //Every header fulfills this difficulty, the benchmark measures adding and not mining
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(255));
+        DependencyManager.injectBlockchain(blockchain);
+
+        transactions = BenchmarkData.signedTransactions(transactionCount, 64);
+        coinbase = SignatureUtil.getCoinbaseFromPublicKey(SignatureUtil.generateKeyPair());
+
+        AccountStorage accountStorage = DependencyManager.getAccountStorage();
+        transactions.forEach(transaction -> accountStorage.getAccount(transaction.getSender()).addBalance(1.0E12));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        block = new Block(new ArrayList<>(transactions), blockchain.getPreviousHash());
+        block.setCoinbase(coinbase);
+    }
+
+    @Benchmark
+    public int addBlock() {
+        blockchain.addBlock(block);
+        return blockchain.size();
+    }
+}
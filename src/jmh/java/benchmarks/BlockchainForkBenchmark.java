@@ -0,0 +1,80 @@
+package benchmarks;
+
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import org.openjdk.jmh.annotations.*;
+import utils.SignatureUtil;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks adding short forks to a long chain: every fork block is a sibling of a block near the tip, followed by a
+ * chain switch to a fork that gets longer than the main chain
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BlockchainForkBenchmark {
+
+    @Param({"1000", "10000"})
+    private int chainLength;
+
+    @Param({"200"})
+    private int forkCount;
+
+    private Blockchain blockchain;
+    private byte[] coinbase;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        coinbase = SignatureUtil.getCoinbaseFromPublicKey(SignatureUtil.generateKeyPair());
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        blockchain = new Blockchain();
+        //Every header fulfills this difficulty, the benchmark measures adding and not mining
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(256));
+        DependencyManager.injectBlockchain(blockchain);
+
+        Block block = blockchain.getGenesisBlock();
+        for (int i = 0; i < chainLength; i++) {
+            block = addBlock(block);
+        }
+    }
+
+    @Benchmark
+    public int addForks() {
+        Block forkPoint = blockchain.getChain().get(chainLength - 1);
+        Block forkTip = forkPoint;
+
+        for (int i = 0; i < forkCount; i++) {
+            addBlock(forkPoint);
+        }
+        //Two more blocks on one of the forks switch the main chain
+        for (int i = 0; i < 3; i++) {
+            forkTip = addBlock(forkTip);
+        }
+        return blockchain.size();
+    }
+
+    /**
+     * Adds a new empty block on top of a block
+     *
+     * @param parent Block to build on
+     * @return New block
+     */
+    private Block addBlock(Block parent) {
+        Block block = new Block(parent.getBlockHash());
+        block.setCoinbase(coinbase);
+        block.getBlockHeader().setTimestamp(timestamp++);
+        blockchain.addBlock(block);
+        return block;
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import models.Block;
+import models.Chain;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks appending blocks to a chain until it reaches the given length and reading it back by height
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ChainBenchmark {
+
+    @Param({"10000", "100000"})
+    private int chainLength;
+
+    private Block block;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        block = new Block(new byte[32]);
+    }
+
+    @Benchmark
+    public Chain append() {
+        Chain chain = new Chain(1);
+        for (int i = 1; i < chainLength; i++) {
+            chain.add(block);
+        }
+        return chain;
+    }
+
+    @Benchmark
+    public int appendAndRead() {
+        Chain chain = append();
+        int found = 0;
+        for (int height = 0; height < chain.size(); height++) {
+            if (chain.get(height) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
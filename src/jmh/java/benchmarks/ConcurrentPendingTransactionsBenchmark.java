@@ -0,0 +1,77 @@
+package benchmarks;
+
+import logic.PendingTransactions;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the pending transactions under concurrent access: REST/network threads add and remove transactions
+ * while the miner takes snapshots for new block templates
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentPendingTransactionsBenchmark {
+
+    @Param({"10000"})
+    private int pendingCount;
+
+    private PendingTransactions pendingTransactions;
+
+    @Setup
+    public void setUp() {
+        pendingTransactions = new PendingTransactions();
+        for (int i = 0; i < pendingCount; i++) {
+            pendingTransactions.addPendingTransaction(
+                    new Transaction(("sender" + (i % 500)).getBytes(), "receiver".getBytes(), 1.0, i, 0.0001 * (i % 1000), 10.0));
+        }
+    }
+
+    /**
+     * Transactions a single writer thread cycles through
+     */
+    @State(Scope.Thread)
+    public static class WriterState {
+        private List<Transaction> transactions;
+        private int index;
+
+        @Setup
+        public void setUp() {
+            transactions = new ArrayList<>();
+            long thread = Thread.currentThread().getId();
+            for (int i = 0; i < 1024; i++) {
+                transactions.add(new Transaction(("writer" + thread + "_" + (i % 16)).getBytes(),
+                        "receiver".getBytes(), 1.0, i, 0.0001 * (i % 1000), 10.0));
+            }
+        }
+
+        private Transaction next() {
+            return transactions.get(index++ & (transactions.size() - 1));
+        }
+    }
+
+    @Benchmark
+    @Group("mempool")
+    @GroupThreads(3)
+    public boolean addAndRemove(WriterState writerState) {
+        Transaction transaction = writerState.next();
+        pendingTransactions.addPendingTransaction(transaction);
+        boolean result = pendingTransactions.areThereNoOtherTransactionsFor(transaction);
+        pendingTransactions.clearPendingTransaction(transaction);
+        return result;
+    }
+
+    @Benchmark
+    @Group("mempool")
+    @GroupThreads(1)
+    public List<Transaction> snapshot() {
+        return pendingTransactions.getTransactionsForNextBlock();
+    }
+}
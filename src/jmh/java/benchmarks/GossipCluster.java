@@ -0,0 +1,117 @@
+package benchmarks;
+
+import models.Transaction;
+import network.BinaryCodec;
+import network.TransactionGossip;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.MFC;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UFC;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local cluster of JGroups channels (shared loopback transport or the UDP stack of the nodes), every node handles transaction messages
+ * like BlockchainNetwork (single transactions and the batched gossip) and counts the received transactions
+ */
+class GossipCluster {
+
+    //Nodes of the cluster
+    final List<Node> nodes = new ArrayList<>();
+    //Counted down for every transaction a node receives
+    volatile CountDownLatch received = new CountDownLatch(0);
+    //Messages delivered to all nodes
+    final AtomicLong messages = new AtomicLong();
+    //Bytes delivered to all nodes
+    final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Starts a cluster
+     *
+     * @param clusterName Name of the cluster
+     * @param size        Number of nodes
+     * @param udp         Use the UDP stack of the nodes (src/main/resources/udp.xml) instead of the shared loopback
+     * @throws Exception if a channel cannot be connected
+     */
+    GossipCluster(String clusterName, int size, boolean udp) throws Exception {
+        for (int i = 0; i < size; i++) {
+            nodes.add(new Node(clusterName, udp));
+        }
+    }
+
+    /**
+     * Closes all channels
+     */
+    void close() {
+        nodes.forEach(node -> node.channel.close());
+    }
+
+    /**
+     * Node of the cluster
+     */
+    class Node extends ReceiverAdapter {
+
+        //Channel of the node
+        final JChannel channel;
+        //Batched gossip of the node
+        final TransactionGossip gossip;
+
+        Node(String clusterName, boolean udp) throws Exception {
+            channel = udp ? new JChannel("src/main/resources/udp.xml")
+                    : new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+                    new STABLE(), new GMS().joinTimeout(1000), new UFC(), new MFC(), new FRAG2());
+            gossip = new TransactionGossip(channel, transaction -> received.countDown(), txId -> false);
+            channel.setReceiver(this);
+            channel.setDiscardOwnMessages(true);
+            channel.connect(clusterName);
+        }
+
+        /**
+         * Sends a transaction in its own message
+         *
+         * @param transaction Transaction to send
+         * @throws Exception if the message cannot be sent
+         */
+        void sendSingle(Transaction transaction) throws Exception {
+            channel.send(new Message(null, BinaryCodec.encodeTransaction(transaction)));
+        }
+
+        @Override
+        public void receive(Message msg) {
+            messages.incrementAndGet();
+            bytes.addAndGet(msg.getLength());
+            try {
+                byte[] buffer = msg.getRawBuffer();
+                switch (BinaryCodec.getType(buffer, msg.getOffset())) {
+                    case BinaryCodec.TYPE_TRANSACTION:
+                        BinaryCodec.decodeTransaction(buffer, msg.getOffset(), msg.getLength());
+                        received.countDown();
+                        break;
+                    case BinaryCodec.TYPE_INVENTORY:
+                        gossip.handleInventory(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                        break;
+                    case BinaryCodec.TYPE_GET_TRANSACTIONS:
+                        gossip.handleGetTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                        break;
+                    case BinaryCodec.TYPE_TRANSACTIONS:
+                        gossip.handleTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                        break;
+                    default:
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import utils.HashKey;
+import utils.SHA3Util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookup of a block hash given as byte Array in a cache keyed by hex Strings and in a cache keyed by
+ * HashKeys. Run with "-prof gc" to compare the allocations per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashKeyBenchmark {
+
+    @Param({"100000"})
+    private int entryCount;
+
+    private byte[][] hashes;
+    private Map<String, Integer> hexCache;
+    private Map<HashKey, Integer> keyCache;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        hashes = new byte[entryCount][32];
+        hexCache = new HashMap<>();
+        keyCache = new HashMap<>();
+
+        for (int i = 0; i < entryCount; i++) {
+            random.nextBytes(hashes[i]);
+            hexCache.put(SHA3Util.digestToHex(hashes[i]), i);
+            keyCache.put(HashKey.of(hashes[i]), i);
+        }
+    }
+
+    @Benchmark
+    public Integer hexLookup() {
+        next = (next + 1) % entryCount;
+        return hexCache.get(SHA3Util.digestToHex(hashes[next]));
+    }
+
+    @Benchmark
+    public Integer keyLookup() {
+        next = (next + 1) % entryCount;
+        return keyCache.get(HashKey.of(hashes[next]));
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import models.BlockHeader;
+import org.openjdk.jmh.annotations.*;
+import utils.SHA3Util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the general purpose hashing helpers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashingBenchmark {
+
+    @Param({"80", "1024", "65536"})
+    private int length;
+
+    private byte[] bytes;
+    private BlockHeader blockHeader;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        blockHeader = new BlockHeader(System.currentTimeMillis(),
+                SHA3Util.hash256("previous".getBytes()),
+                SHA3Util.hash256("transactions".getBytes()));
+    }
+
+    @Benchmark
+    public byte[] hash256Bytes() {
+        return SHA3Util.hash256(bytes);
+    }
+
+    @Benchmark
+    public byte[] hash256Object() {
+        return SHA3Util.hash256(blockHeader);
+    }
+
+    @Benchmark
+    public byte[] blockHeaderAsHash() {
+        return blockHeader.asHash();
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import utils.merkle.MerkleTree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building a merkle tree over the transactions of a block
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MerkleTreeBenchmark {
+
+    @Param({"100", "1000", "3000", "3300"})
+    private int transactionCount;
+
+    //Layer size from which on the tree is hashed in parallel (2147483647 = always sequential)
+    @Param({"2147483647", "1024"})
+    private int parallelThreshold;
+
+    private List<Transaction> transactions;
+
+    @Setup
+    public void setUp() {
+        transactions = BenchmarkData.signedTransactions(transactionCount, 32);
+        MerkleTree.setParallelThreshold(parallelThreshold);
+    }
+
+    @Benchmark
+    public byte[] buildMerkleTree() {
+        return new MerkleTree(transactions).getMerkleTreeRoot();
+    }
+}
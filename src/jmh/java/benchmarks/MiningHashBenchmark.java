@@ -0,0 +1,69 @@
+package benchmarks;
+
+import models.BlockHeader;
+import org.openjdk.jmh.annotations.*;
+import utils.SHA3Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways a block header can be hashed while mining
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MiningHashBenchmark {
+
+    private BlockHeader blockHeader;
+    private byte[] encodedHeader;
+    private SHA3Util.Midstate midstate;
+    private int nonce;
+
+    @Setup
+    public void setUp() {
+        blockHeader = new BlockHeader(System.currentTimeMillis(),
+                SHA3Util.hash256("previous".getBytes()),
+                SHA3Util.hash256("transactions".getBytes()));
+        encodedHeader = blockHeader.asBytes();
+        midstate = SHA3Util.absorbPrefix(encodedHeader, 0, BlockHeader.NONCE_OFFSET);
+    }
+
+    /**
+     * Previous path: Java serialization of the whole header plus a new digest per hash
+     */
+    @Benchmark
+    public byte[] serializedHeader() {
+        blockHeader.setNonce(nonce++);
+        return SHA3Util.hash256(blockHeader);
+    }
+
+    /**
+     * Re-encodes the header into the thread local buffer
+     */
+    @Benchmark
+    public byte[] asHash() {
+        blockHeader.setNonce(nonce++);
+        return blockHeader.asHash();
+    }
+
+    /**
+     * Patches the nonce of the encoded header and hashes all of it
+     */
+    @Benchmark
+    public byte[] patchedNonce() {
+        BlockHeader.writeNonce(encodedHeader, nonce++);
+        return SHA3Util.hash256(encodedHeader);
+    }
+
+    /**
+     * Patches the nonce and only absorbs it behind the cached prefix state
+     */
+    @Benchmark
+    public byte[] midstate() {
+        BlockHeader.writeNonce(encodedHeader, nonce++);
+        return midstate.hash256(encodedHeader, BlockHeader.NONCE_OFFSET, BlockHeader.ENCODED_SIZE - BlockHeader.NONCE_OFFSET);
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import com.owlike.genson.Genson;
+import models.Block;
+import network.BinaryCodec;
+import network.CompactBlock;
+import network.adapters.BlockAdapter;
+import org.openjdk.jmh.annotations.*;
+import utils.SHA3Util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding a block for the network as JSON, binary and compact block
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkCodecBenchmark {
+
+    @Param({"1000"})
+    private int transactionCount;
+
+    private Genson genson;
+    private Block block;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        genson = new Genson();
+        block = new Block(BenchmarkData.signedTransactions(transactionCount, 64), SHA3Util.hash256("previous".getBytes()));
+        json = genson.serializeBytes(new BlockAdapter(block));
+        binary = BinaryCodec.encodeBlock(block);
+        System.out.println("Block size: JSON " + json.length + " bytes, binary " + binary.length + " bytes, compact "
+                + BinaryCodec.encodeCompactBlock(CompactBlock.of(block)).length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return genson.serializeBytes(new BlockAdapter(block));
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return BinaryCodec.encodeBlock(block);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() {
+        return BinaryCodec.encodeCompactBlock(CompactBlock.of(block));
+    }
+
+    @Benchmark
+    public Block decodeJson() {
+        return genson.deserialize(new String(json), BlockAdapter.class).getBlock();
+    }
+
+    @Benchmark
+    public Block decodeBinary() throws IOException {
+        return BinaryCodec.decodeBlock(binary, 0, binary.length);
+    }
+}
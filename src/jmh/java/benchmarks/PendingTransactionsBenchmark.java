@@ -0,0 +1,36 @@
+package benchmarks;
+
+import logic.PendingTransactions;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the transaction list of a block template from the pending transactions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PendingTransactionsBenchmark {
+
+    @Param({"1000", "3300", "20000"})
+    private int pendingCount;
+
+    private PendingTransactions pendingTransactions;
+
+    @Setup
+    public void setUp() {
+        pendingTransactions = new PendingTransactions();
+        pendingTransactions.addPendingTransactions(BenchmarkData.signedTransactions(pendingCount, 64));
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsForNextBlock() {
+        return pendingTransactions.getTransactionsForNextBlock();
+    }
+}
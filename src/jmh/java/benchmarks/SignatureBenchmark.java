@@ -0,0 +1,51 @@
+package benchmarks;
+
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import utils.SignatureUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the verification of transaction signatures
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+    //Number of distinct senders the verified transactions are spread over
+    @Param({"1", "256"})
+    private int senderCount;
+
+    private byte[][] payloads;
+    private byte[][] signatures;
+    private byte[][] publicKeys;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        List<Transaction> transactions = BenchmarkData.signedTransactions(1024, senderCount);
+
+        payloads = new byte[transactions.size()][];
+        signatures = new byte[transactions.size()][];
+        publicKeys = new byte[transactions.size()][];
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            payloads[i] = transaction.asJSONString().getBytes(StandardCharsets.UTF_8);
+            signatures[i] = transaction.getSignature();
+            publicKeys[i] = transaction.getSender();
+        }
+    }
+
+    @Benchmark
+    public boolean verify() {
+        int i = index++ & (payloads.length - 1);
+        return SignatureUtil.verify(payloads[i], signatures[i], publicKeys[i]);
+    }
+}
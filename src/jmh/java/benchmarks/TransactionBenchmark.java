@@ -0,0 +1,48 @@
+package benchmarks;
+
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import utils.SHA3Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the transaction Id and the signed payload with and without caching.
+ * Run with "-prof gc" to compare the allocations per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        transaction = BenchmarkData.signedTransactions(1, 1).get(0);
+    }
+
+    @Benchmark
+    public String txIdAsStringUncached() {
+        return SHA3Util.hash256AsHex(transaction);
+    }
+
+    @Benchmark
+    public String txIdAsString() {
+        return transaction.getTxIdAsString();
+    }
+
+    @Benchmark
+    public byte[] signingPayloadUncached() {
+        return transaction.asJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] signingPayload() {
+        return transaction.getSigningPayload();
+    }
+}
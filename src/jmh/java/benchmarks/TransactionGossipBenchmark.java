@@ -0,0 +1,87 @@
+package benchmarks;
+
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the propagation of transactions in a local multi-node cluster: one multicast per transaction against
+ * the batched gossip with inventory announcements. One operation sends a burst of transactions from one node and
+ * ends when every other node received all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionGossipBenchmark {
+
+    @Param({"single", "batched"})
+    private String mode;
+
+    @Param({"loopback", "udp"})
+    private String transport;
+
+    @Param({"3"})
+    private int nodeCount;
+
+    @Param({"1000"})
+    private int burstSize;
+
+    private static final AtomicLong NONCE = new AtomicLong();
+
+    private GossipCluster cluster;
+    private List<Transaction> burst;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cluster = new GossipCluster("gossip-" + mode + "-" + System.nanoTime(), nodeCount, "udp".equals(transport));
+    }
+
+    @Setup(Level.Invocation)
+    public void createBurst() {
+        burst = new ArrayList<>(burstSize);
+        for (int i = 0; i < burstSize; i++) {
+            long nonce = NONCE.incrementAndGet();
+            Transaction transaction = new Transaction(SHA3Util.hash256(("sender" + nonce % 64).getBytes()),
+                    SHA3Util.hash256(("receiver" + nonce).getBytes()), 1.0, (int) nonce, 0.001, 10.0);
+            transaction.setSignature(SHA3Util.hash256(("signature" + nonce).getBytes()));
+            transaction.getTxId();
+            burst.add(transaction);
+        }
+        cluster.received = new CountDownLatch((nodeCount - 1) * burstSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (operations > 0) {
+            System.out.println("Per burst of " + burstSize + " transactions: " + cluster.messages.get() / operations
+                    + " messages, " + cluster.bytes.get() / operations + " bytes delivered");
+        }
+        cluster.close();
+    }
+
+    @Benchmark
+    public void propagateBurst() throws Exception {
+        GossipCluster.Node sender = cluster.nodes.get(0);
+        for (Transaction transaction : burst) {
+            if ("batched".equals(mode)) {
+                sender.gossip.announce(transaction);
+            } else {
+                sender.sendSingle(transaction);
+            }
+        }
+        if (!cluster.received.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Transactions did not arrive: " + cluster.received.getCount() + " missing");
+        }
+        operations++;
+    }
+}
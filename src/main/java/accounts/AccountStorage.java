@@ -6,7 +6,7 @@ import models.Block;
 import models.GenesisBlock;
 import models.Transaction;
 import org.apache.log4j.Logger;
-import utils.SHA3Util;
+import utils.HashKey;
 
 import java.util.List;
 import java.util.Map;
@@ -20,7 +20,7 @@ public class AccountStorage {
     //Logger to display additional information
     Logger logger = Logger.getLogger(AccountStorage.class);
     //Map of all the registered accounts
-    private Map<String, Account> accounts;
+    private Map<HashKey, Account> accounts;
     //Map of all the registered miner
     private Map<Integer, Account> minerMap;
     //Map of all the blocks of the chain
@@ -103,15 +103,11 @@ public class AccountStorage {
      * Returns an account depending on the address
      *
      * @param address Address of the account as String
-     * @return
+     * @return Account or null if the address is no valid hex String
      */
     public Account getAccount(String address) {
-        Account account = accounts.get(address);
-        if (account == null) {
-            account = createAccount(SHA3Util.hexToDigest(address));
-            accounts.put(address, account);
-        }
-        return account;
+        HashKey key = HashKey.fromHex(address);
+        return (key == null) ? null : getAccount(key);
     }
 
     /**
@@ -121,11 +117,20 @@ public class AccountStorage {
      * @return
      */
     public Account getAccount(byte[] address) {
-        String addressAsHex = SHA3Util.digestToHex(address);
-        Account account = accounts.get(addressAsHex);
+        return getAccount(HashKey.of(address));
+    }
+
+    /**
+     * Returns an account depending on the key of the address
+     *
+     * @param key Key of the address
+     * @return Account of the address
+     */
+    private Account getAccount(HashKey key) {
+        Account account = accounts.get(key);
         if (account == null) {
-            account = createAccount(address);
-            accounts.put(addressAsHex, account);
+            account = createAccount(key.toBytes());
+            accounts.put(key, account);
         }
         return account;
     }
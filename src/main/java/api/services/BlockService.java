@@ -18,6 +18,18 @@ public class BlockService {
     @Context
     UriInfo uriInfo;
 
+    /**
+     * Returns the counters of the pruning of alternative chains
+     *
+     * @return Metrics by name
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("pruning")
+    public Response getPruningMetrics() {
+        return Response.ok(DependencyManager.getBlockchain().getPruningMetrics()).build();
+    }
+
     /**
      * Returns the block to a given hash
      *
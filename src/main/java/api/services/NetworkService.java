@@ -0,0 +1,28 @@
+package api.services;
+
+import logic.DependencyManager;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * REST service for the state of the network
+ */
+@Path("network")
+public class NetworkService {
+
+    /**
+     * Returns the counters and queue sizes of the inbound pipeline
+     *
+     * @return Metrics by name
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("pipeline")
+    public Response getPipelineMetrics() {
+        return Response.ok(DependencyManager.getBlockchainNetwork().getPipelineMetrics()).build();
+    }
+}
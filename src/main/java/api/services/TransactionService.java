@@ -5,7 +5,6 @@ import models.Block;
 import models.Transaction;
 import utils.SHA3Util;
 import utils.VerificationUtil;
-import utils.merkle.MerkleTree;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -52,6 +51,48 @@ public class TransactionService {
         }
     }
 
+    /**
+     * Sends multiple transactions to the network.
+     * The signatures of all transactions are verified as one batch, the balance and pending transaction checks run in
+     * the order of the list.
+     *
+     * @param transactions Transactions to send
+     * @return List with the result per transaction (true if the transaction was accepted)
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response sendTransactions(List<Transaction> transactions) {
+        if (transactions == null) {
+            throw new WebApplicationException(422);
+        }
+
+        boolean[] signaturesVerified = VerificationUtil.verifySignatureBatch(transactions);
+        List<Boolean> results = new ArrayList<>();
+
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            boolean accepted = signaturesVerified[i] && VerificationUtil.verifyBalance(transaction)
+                    && VerificationUtil.verifyPendingTransactions(transaction);
+
+            if (accepted) {
+                DependencyManager.getPendingTransactions().addPendingTransaction(transaction);
+                try {
+                    DependencyManager.getBlockchainNetwork().sendTransaction(transaction);
+                } catch (Exception e) {
+                    throw new WebApplicationException(e);
+                }
+            }
+            results.add(accepted);
+        }
+
+        if (results.contains(true)) {
+            DependencyManager.getMiner().cancelBlock();
+        }
+        return Response.ok(results).build();
+    }
+
     /**
      * Returns a transaction by a given hash
      *
@@ -116,8 +157,7 @@ public class TransactionService {
             response = Response.status(404).build();
         } else {
             Block block = DependencyManager.getBlockchain().getBlockByHash(transaction.getBlockId());
-            MerkleTree merkleTree = new MerkleTree(block.getTransactions());
-            response = Response.ok(merkleTree.getHashesForTransactionHash(transaction.getTxId())).build();
+            response = Response.ok(block.getMerkleTree().getHashesForTransactionHash(transaction.getTxId())).build();
         }
 
         return response;
@@ -1,16 +1,17 @@
 package logic;
 
 import models.Block;
+import models.BlockHeader;
 import models.Chain;
 import models.Transaction;
 import org.apache.log4j.Logger;
-import utils.SHA3Util;
+import utils.HashKey;
 import utils.VerificationUtil;
 
 import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class represents the blockchain itself
@@ -33,32 +34,52 @@ public class Blockchain {
     //Amount how often the fee base price gets added to a transaction
     public final static int TRANSACTION_FEE_UNITS = 10;
 
+    //Number of blocks an alternative chain may fall behind the best block before it gets pruned (0 or less disables it)
+    private static volatile int pruneDepth = Integer.getInteger("blockchain.pruneDepth", 100);
+    //Hash of the genesis block of the network as hex, only this genesis header is adopted if set, can be set with -Dblockchain.genesisHash=<hash>
+    private static volatile String genesisHash = System.getProperty("blockchain.genesisHash");
+    //Time in milliseconds the timestamp of an adopted genesis header may be ahead of the own clock
+    private final static long MAX_GENESIS_CLOCK_DRIFT = 2 * 60 * 60 * 1000L;
+
     //Difficulty of the blockchain
     private BigInteger difficulty;
-    //List of alternative chains that are existing
-    private List<Chain> altChains;
-    //Best/Most recent, verified block
-    private Block bestBlock;
-    //The chain of the blockchain
+    //Node of the best/most recent verified block (the highest tip, the first received one on equal height)
+    private volatile BlockNode bestNode;
+    //The chain of the blockchain (the path from the genesis block to the best block)
     private Chain chain;
-    //Cache of blocks
-    private Map<String, Block> blockCache;
+    //Node of every block of the block tree, forks share the nodes of their common prefix
+    private Map<HashKey, BlockNode> blockNodes;
+    //Nodes without children, the tips of the main chain and of the alternative chains
+    private Set<BlockNode> tips;
     //Cache of transactions
-    private Map<String, Transaction> transactionCache;
+    private Map<HashKey, Transaction> transactionCache;
+    //Blocks of the cached transactions that are part of more than one block (e.g. both sides of a fork)
+    private Map<HashKey, List<Block>> sharedTransactions;
+    //Number of pruned alternative chains
+    private AtomicLong prunedChains;
+    //Number of pruned blocks
+    private AtomicLong prunedBlocks;
+    //Number of transactions removed from the cache by pruning
+    private AtomicLong prunedTransactions;
+    //Size of the pruned blocks in bytes
+    private AtomicLong prunedBytes;
 
     /**
      * Creates a new empty blockchain
      */
     public Blockchain() {
         logger.info("Blockchain: Blockchain created.");
-        this.altChains = new CopyOnWriteArrayList<>();
+        this.difficulty = new BigInteger("-57896000000000000000000000000000000000000000000000000000000000000000000000000");
         this.chain = new Chain(NETWORK_ID);
-        this.altChains.add(chain);
-        this.bestBlock = this.chain.getLast();
-        this.blockCache = new ConcurrentHashMap<>();
-        this.blockCache.put(SHA3Util.digestToHex(getGenesisBlock().getBlockHash()), getGenesisBlock());
+        this.blockNodes = new ConcurrentHashMap<>();
+        this.tips = ConcurrentHashMap.newKeySet();
         this.transactionCache = new ConcurrentHashMap<>();
-        this.difficulty = new BigInteger("-57896000000000000000000000000000000000000000000000000000000000000000000000000");
+        this.sharedTransactions = new ConcurrentHashMap<>();
+        this.prunedChains = new AtomicLong();
+        this.prunedBlocks = new AtomicLong();
+        this.prunedTransactions = new AtomicLong();
+        this.prunedBytes = new AtomicLong();
+        this.bestNode = addNode(getGenesisBlock(), null);
     }
 
     /**
@@ -70,30 +91,35 @@ public class Blockchain {
     public Blockchain(BigInteger difficulty, List<Chain> altChains) {
         logger.info("Blockchain: Blockchain created.");
         this.difficulty = difficulty;
-        this.altChains = altChains;
-        this.blockCache = new ConcurrentHashMap<>();
+        this.blockNodes = new ConcurrentHashMap<>();
+        this.tips = ConcurrentHashMap.newKeySet();
         this.transactionCache = new ConcurrentHashMap<>();
-
-        int max = 0;
-        Chain chain = null;
+        this.sharedTransactions = new ConcurrentHashMap<>();
+        this.prunedChains = new AtomicLong();
+        this.prunedBlocks = new AtomicLong();
+        this.prunedTransactions = new AtomicLong();
+        this.prunedBytes = new AtomicLong();
 
         for (Chain altChain : altChains) {
-            if (max < altChain.size()) {
-                max = altChain.size();
-                chain = altChain;
-            }
-
             for (Block block : altChain.getChain()) {
-                this.blockCache.put(SHA3Util.digestToHex(block.getBlockHash()), block);
-
-                for (Transaction transaction : block.getTransactions()) {
-                    this.transactionCache.put(transaction.getTxIdAsString(), transaction);
+                if (!blockNodes.containsKey(HashKey.of(block.getBlockHash()))) {
+                    BlockNode parent = blockNodes.get(HashKey.of(block.getBlockHeader().getPreviousHash()));
+                    //Only the genesis block has no previous block
+                    if (parent == null && bestNode != null) {
+                        logger.info("Blockchain: Previous block unknown.");
+                        continue;
+                    }
+                    BlockNode node = addNode(block, parent);
+
+                    if (bestNode == null || node.height > bestNode.height) {
+                        bestNode = node;
+                    }
+                    cacheTransactions(block);
                 }
             }
         }
 
-        this.chain = chain;
-        this.bestBlock = chain.getLast();
+        this.chain = new Chain(NETWORK_ID, getPath(bestNode, null));
     }
 
     /**
@@ -103,161 +129,342 @@ public class Blockchain {
      */
     public synchronized void addBlock(Block block) {
         logger.info("Blockchain: New block added.");
+        //Headers that can not be hashed, known blocks and blocks without parent are dropped before the expensive verification
+        if (!VerificationUtil.verifyBlockHeader(block.getBlockHeader())) {
+            return;
+        }
+        if (blockNodes.containsKey(HashKey.of(block.getBlockHash()))) {
+            logger.info("Blockchain: Block already known.");
+            return;
+        }
+        BlockNode parent = blockNodes.get(HashKey.of(block.getBlockHeader().getPreviousHash()));
+        if (parent == null) {
+            logger.info("Blockchain: Previous block unknown.");
+            return;
+        }
+
         if (VerificationUtil.verifyBlock(block)) {
-            byte[] previousBlockHash = block.getBlockHeader().getPreviousHash();
+            BlockNode node = addNode(block, parent);
 
-            if (previousBlockIsBestBlock(previousBlockHash)) {
-                block.setBlockNumber(chain.size());
+            if (parent == bestNode) {
                 chain.add(block);
-                bestBlock = block;
+                bestNode = node;
                 DependencyManager.getPendingTransactions().clearPendingTransactions(block);
             } else {
-                checkAltChains(previousBlockHash, block);
+                switchChainsIfNecessary(node);
             }
 
-            blockCache.put(SHA3Util.digestToHex(block.getBlockHash()), block);
-
-            block.getTransactions().forEach(transaction -> transactionCache.put(transaction.getTxIdAsString(), transaction));
+            cacheTransactions(block);
 
             DependencyManager.getAccountStorage().parseBlock(block);
+
+            if (pruneDepth > 0) {
+                pruneAltChains(pruneDepth);
+            }
         }
     }
 
     /**
-     * Checks if a block can be linked to a alternative chain and if not a new alternative chain is created
+     * Adds the transactions of a block to the transaction cache.
+     * A cached transaction gets the hash of its block as block Id, for a transaction that is already cached the block
+     * is registered as another block of the transaction.
      *
-     * @param previousBlockHash Previous hash of the block
-     * @param block             Block
+     * @param block Block with the transactions
      */
-    private void checkAltChains(byte[] previousBlockHash, Block block) {
-        boolean isNoBlockOfAltChain = true;
-        for (Chain altChain : altChains) {
-            if (Arrays.equals(altChain.getLast().getBlockHash(), previousBlockHash)) {
-                block.setBlockNumber(altChain.size());
-                altChain.add(block);
-                switchChainsIfNecessary(altChain);
-                isNoBlockOfAltChain = false;
-                break;
+    private void cacheTransactions(Block block) {
+        for (Transaction transaction : block.getTransactions()) {
+            HashKey key = HashKey.of(transaction.getTxId());
+            Transaction cached = transactionCache.putIfAbsent(key, transaction);
+
+            if (cached == null) {
+                transaction.setBlockId(block.getBlockHash());
+            } else {
+                sharedTransactions.computeIfAbsent(key, k -> {
+                    List<Block> blocks = new ArrayList<>();
+                    Block cachedBlock = (cached.getBlockId() == null) ? null : getBlockByHash(cached.getBlockId());
+                    if (cachedBlock != null) {
+                        blocks.add(cachedBlock);
+                    }
+                    return blocks;
+                }).add(block);
+            }
+        }
+    }
+
+    /**
+     * Removes the transactions of a pruned block from the transaction cache, unless they are part of another block.
+     * If the cached instance of a shared transaction belongs to the pruned block, it is replaced by the instance of a
+     * remaining block, so the block Id of the cached transaction always resolves.
+     *
+     * @param block Pruned block
+     * @return Number of transactions removed from the cache
+     */
+    private int releaseTransactions(Block block) {
+        int released = 0;
+        for (Transaction transaction : block.getTransactions()) {
+            HashKey key = HashKey.of(transaction.getTxId());
+            List<Block> blocks = sharedTransactions.get(key);
+
+            if (blocks != null) {
+                blocks.remove(block);
+                if (blocks.size() <= 1) {
+                    sharedTransactions.remove(key);
+                }
+            }
+            if (blocks == null || blocks.isEmpty()) {
+                if (transactionCache.remove(key) != null) {
+                    released++;
+                }
+            } else {
+                Transaction cached = transactionCache.get(key);
+                if (cached == null || cached.getBlockId() == null || Arrays.equals(cached.getBlockId(), block.getBlockHash())) {
+                    Block remainingBlock = blocks.get(0);
+                    Transaction remaining = findTransaction(remainingBlock, key);
+                    remaining.setBlockId(remainingBlock.getBlockHash());
+                    transactionCache.put(key, remaining);
+                }
             }
         }
-        if (isNoBlockOfAltChain) {
-            createNewAltChain(previousBlockHash, block);
+        return released;
+    }
+
+    /**
+     * Returns the transaction with the given Id of a block
+     *
+     * @param block Block with the transaction
+     * @param key   Key of the transaction Id
+     * @return Transaction or null if the block does not contain it
+     */
+    private Transaction findTransaction(Block block, HashKey key) {
+        for (Transaction transaction : block.getTransactions()) {
+            if (key.equals(HashKey.of(transaction.getTxId()))) {
+                return transaction;
+            }
         }
+        return null;
     }
 
     /**
-     * Creates a new alternative chain with a given block an previous hash
+     * Prunes the alternative chains whose tip is more than the given depth behind the best block.
+     * The blocks of such a chain are removed back to the block where it forked from a chain that is kept, together
+     * with their transactions in the transaction cache.
      *
-     * @param previousBlockHash Previous hash
-     * @param block             Block
+     * @param depth Number of blocks a chain may fall behind the best block
      */
-    private void createNewAltChain(byte[] previousBlockHash, Block block) {
-        Chain chain = getChainForBlock(getBlockByHash(previousBlockHash));
-
-        for (int i = chain.getChain().size() - 1; i >= 0; i--) {
-            if (Arrays.equals(chain.get(i).getBlockHash(), previousBlockHash)) {
-                List<Block> newChain = new CopyOnWriteArrayList<>(chain.getChain().subList(0, i + 1));
-                block.setBlockNumber(newChain.size());
-                newChain.add(block);
-                Chain newChainChain = new Chain(NETWORK_ID, newChain);
-                altChains.add(newChainChain);
-                i = -1;
-
-                switchChainsIfNecessary(newChainChain);
+    private void pruneAltChains(int depth) {
+        BlockNode bestNode = this.bestNode;
+
+        for (BlockNode tip : tips) {
+            if (bestNode.height - tip.height > depth) {
+                pruneBranch(tip);
             }
         }
     }
 
     /**
-     * Switches the main chain if the given chain is longer and valid
+     * Removes the blocks of a branch from its tip back to the first block that is part of the main chain or of another
+     * branch
      *
-     * @param chain Chain to check
+     * @param tip Tip of the branch
      */
-    private void switchChainsIfNecessary(Chain chain) {
-        if (chain.size() > this.chain.size()) {
+    private void pruneBranch(BlockNode tip) {
+        int blocks = 0;
+        int transactions = 0;
+        long bytes = 0;
+
+        tips.remove(tip);
+        BlockNode node = tip;
+        while (node.parent != null && node.childCount == 0 && chain.get(node.height) != node.block) {
+            blockNodes.remove(HashKey.of(node.block.getBlockHash()));
+            transactions += releaseTransactions(node.block);
+            bytes += node.block.getBlockSize();
+            blocks++;
+
+            node.parent.childCount--;
+            node = node.parent;
+        }
+
+        prunedChains.incrementAndGet();
+        prunedBlocks.addAndGet(blocks);
+        prunedTransactions.addAndGet(transactions);
+        prunedBytes.addAndGet(bytes);
+        logger.info("Blockchain: Alternative chain pruned (" + blocks + " blocks).");
+    }
+
+    /**
+     * Replaces the header of the own genesis block with the header of the genesis block of the network.
+     * The genesis block gets the creation time as timestamp, so a new node has to adopt the genesis block of the
+     * network before any block of the network can be linked. This is only possible as long as the chain contains
+     * nothing but the genesis block and the header is a valid header of the own genesis block.
+     *
+     * @param blockHeader Header of the genesis block of the network
+     * @return Boolean if the header was adopted
+     */
+    public synchronized boolean adoptGenesisHeader(BlockHeader blockHeader) {
+        if (chain.size() != 1 || tips.size() != 1) {
+            return false;
+        }
+        Block genesisBlock = getGenesisBlock();
+        if (!isValidGenesisHeader(genesisBlock, blockHeader)) {
+            logger.warn("Blockchain: Invalid genesis header rejected.");
+            return false;
+        }
+        BlockNode genesisNode = blockNodes.remove(HashKey.of(genesisBlock.getBlockHash()));
+        genesisBlock.setBlockHeader(blockHeader);
+        blockNodes.put(HashKey.of(genesisBlock.getBlockHash()), genesisNode);
+        logger.info("Blockchain: Genesis block of the network adopted.");
+        return true;
+    }
+
+    /**
+     * Checks if a header can be the header of the own genesis block: it has to match the configured genesis hash
+     * (if set), the version, the previous hash and the nonce of the own genesis header and the merkle root of the own
+     * genesis transactions. The genesis block is not mined, only its timestamp may differ (but not lie in the future).
+     *
+     * @param genesisBlock Own genesis block
+     * @param blockHeader  Header of the genesis block of the network
+     * @return Boolean if the header is valid or not
+     */
+    private static boolean isValidGenesisHeader(Block genesisBlock, BlockHeader blockHeader) {
+        if (!VerificationUtil.verifyBlockHeader(blockHeader)) {
+            return false;
+        }
+        String expectedHash = genesisHash;
+        if (expectedHash != null && !HashKey.of(blockHeader.asHash()).equals(HashKey.fromHex(expectedHash))) {
+            return false;
+        }
+        BlockHeader ownHeader = genesisBlock.getBlockHeader();
+
+        return blockHeader.getVersion() == ownHeader.getVersion()
+                && blockHeader.getNonce() == ownHeader.getNonce()
+                && Arrays.equals(blockHeader.getPreviousHash(), ownHeader.getPreviousHash())
+                && Arrays.equals(blockHeader.getTransactionListHash(), genesisBlock.getMerkleTree().getMerkleTreeRoot())
+                && blockHeader.getTimestamp() > 0
+                && blockHeader.getTimestamp() <= System.currentTimeMillis() + MAX_GENESIS_CLOCK_DRIFT;
+    }
+
+    /**
+     * Adds a block as child of its parent to the block tree
+     *
+     * @param block  Block to add
+     * @param parent Node of the previous block, null for the genesis block
+     * @return Node of the block
+     */
+    private BlockNode addNode(Block block, BlockNode parent) {
+        BlockNode node = new BlockNode(block, parent);
+        block.setBlockNumber(node.height);
+        blockNodes.put(HashKey.of(block.getBlockHash()), node);
+        if (parent != null) {
+            parent.childCount++;
+            tips.remove(parent);
+        }
+        tips.add(node);
+        return node;
+    }
+
+    /**
+     * Switches the main chain if the chain of the given node has more work than the main chain.
+     * The block headers carry no difficulty and every block is mined with the same difficulty, so every block counts
+     * as the same work and the chain with the most work is the longest one. The work of a chain therefore does not
+     * depend on the difficulty the node has when the blocks arrive.
+     * The main chain is cut back to the fork and continued with the blocks of the new chain, so only the blocks
+     * after the fork are touched.
+     *
+     * @param node Tip of the chain to check
+     */
+    private void switchChainsIfNecessary(BlockNode node) {
+        BlockNode previousNode = bestNode;
+
+        if (node.height > previousNode.height) {
             logger.info("Blockchain: Chain switched.");
-            correctPendingTransactions(this.chain, chain);
-            this.chain = chain;
-            this.bestBlock = chain.getLast();
+            BlockNode forkNode = getForkNode(previousNode, node);
+            List<Block> previousBlocks = getPath(previousNode, forkNode);
+            List<Block> blocks = getPath(node, forkNode);
+
+            chain.truncate(forkNode.height + 1);
+            blocks.forEach(chain::add);
+            bestNode = node;
+            correctPendingTransactions(previousBlocks, blocks);
         }
     }
 
     /**
      * Corrects the open pending transaction when switching the main chain
      *
-     * @param previousChain Previous chain
-     * @param chain         Chain to switch to
+     * @param previousBlocks Blocks of the previous chain after the fork
+     * @param blocks         Blocks of the chain switched to after the fork
      */
-    private void correctPendingTransactions(Chain previousChain, Chain chain) {
-        int index = getIndexOfFork(previousChain, chain);
-
+    private void correctPendingTransactions(List<Block> previousBlocks, List<Block> blocks) {
         Set<Transaction> transactionsToRemove = new HashSet<>();
-        for (int i = index; i < chain.size(); i++) {
-            transactionsToRemove.addAll(chain.get(i).getTransactions());
-        }
+        blocks.forEach(block -> transactionsToRemove.addAll(block.getTransactions()));
 
         Set<Transaction> transactionsToInsert = new HashSet<>();
-        for (int i = index; i < previousChain.size(); i++) {
-            previousChain.get(i).getTransactions().forEach(item -> {
-                if (!transactionsToRemove.contains(item)) {
-                    transactionsToInsert.add(item);
-                }
-            });
-        }
+        previousBlocks.forEach(block -> block.getTransactions().forEach(item -> {
+            if (!transactionsToRemove.contains(item)) {
+                transactionsToInsert.add(item);
+            }
+        }));
 
         DependencyManager.getPendingTransactions().clearPendingTransactions(transactionsToRemove);
         DependencyManager.getPendingTransactions().addPendingTransactions(transactionsToInsert);
     }
 
     /**
-     * Returns the index of the block of the fork (Chain switch)
+     * Returns the node of the fork of two chains (their last common block)
      *
-     * @param previousChain Previous chain
-     * @param chain         Chain switched to
-     * @return Index of the last same block
+     * @param node      Tip of the first chain
+     * @param otherNode Tip of the second chain
+     * @return Node of the last common block
      */
-    private int getIndexOfFork(Chain previousChain, Chain chain) {
-        int index = -1;
-        for (int i = previousChain.size() - 1; i >= 0; i--) {
-            index = chain.getChain().indexOf(previousChain.get(i));
-            if (index > -1) {
-                break;
-            }
+    private BlockNode getForkNode(BlockNode node, BlockNode otherNode) {
+        while (node.height > otherNode.height) {
+            node = node.parent;
         }
-        return (index > -1) ? (index + 1) : 0;
+        while (otherNode.height > node.height) {
+            otherNode = otherNode.parent;
+        }
+        while (node != otherNode) {
+            node = node.parent;
+            otherNode = otherNode.parent;
+        }
+        return node;
     }
 
     /**
-     * Checks if the previous block is the best (most recent verified) block
+     * Returns the blocks from a node back to an ancestor in chain order
      *
-     * @param blockHash Blockhash to check from
-     * @return Boolean if the previous block to the given hash is the best block
+     * @param node     Last node of the path
+     * @param ancestor Ancestor of the node (exclusive), null for the whole path from the genesis block
+     * @return Blocks after the ancestor up to the node
      */
-    private boolean previousBlockIsBestBlock(byte[] blockHash) {
-        return Arrays.equals(DependencyManager.getBlockchain().getPreviousHash(), blockHash);
+    private List<Block> getPath(BlockNode node, BlockNode ancestor) {
+        List<Block> blocks = new ArrayList<>();
+        for (BlockNode current = node; current != ancestor; current = current.parent) {
+            blocks.add(current.block);
+        }
+        Collections.reverse(blocks);
+        return blocks;
     }
 
     /**
-     * Returns the chain to a given block
+     * Returns the block of a node
      *
-     * @param block Block to get the chain from
-     * @return Chain to the given block
+     * @param node Node or null
+     * @return Block of the node or null if there is no node
      */
-    private Chain getChainForBlock(Block block) {
-        Chain result = null;
-
-        int index = chain.getChain().indexOf(block);
+    private Block getBlock(BlockNode node) {
+        return (node == null) ? null : node.block;
+    }
 
-        if (index == -1) {
-            for (Chain altChain : altChains) {
-                if (altChain.getChain().indexOf(block) > -1) {
-                    result = altChain;
-                }
-            }
-        } else {
-            result = chain;
-        }
-        return result;
+    /**
+     * Returns the node of a block that is part of the blockchain
+     *
+     * @param block Block to get the node from
+     * @return Node of the block or null if the block is not part of the blockchain
+     */
+    private BlockNode getNode(Block block) {
+        BlockNode node = (block == null) ? null : blockNodes.get(HashKey.of(block.getBlockHash()));
+        return (node != null && node.block == block) ? node : null;
     }
 
     /**
@@ -280,15 +487,14 @@ public class Blockchain {
      */
     public List<Block> getLatestBlocks(int size, int offset) {
         List<Block> blocks = new ArrayList<>();
-        Block block = this.getLatestBlock();
+        Chain chain = this.chain;
+        int top = chain.size() - 1 - Math.max(offset, 0);
 
-        for (int i = 0; i < (size + offset); i++) {
+        for (int height = top; height > top - size && height >= 0; height--) {
+            Block block = chain.get(height);
+            //The chain got cut back by a chain switch meanwhile
             if (block != null) {
-                if (i >= offset) {
-                    blocks.add(block);
-                }
-                String previousHash = SHA3Util.digestToHex(block.getBlockHeader().getPreviousHash());
-                block = this.getBlockByHash(previousHash);
+                blocks.add(block);
             }
         }
         return blocks;
@@ -301,13 +507,107 @@ public class Blockchain {
      * @return Child/next block to the given one
      */
     public Block getChildOfBlock(Block block) {
-        Block result = null;
-        Chain chain = getChainForBlock(block);
+        BlockNode node = getNode(block);
+        if (node == null) {
+            return null;
+        }
+
+        Chain chain = this.chain;
+        if (chain.get(node.height) == block) {
+            return chain.get(node.height + 1);
+        }
+        //The block is part of an alternative chain, its child is on the way from one of the tips to the block
+        for (BlockNode tip : tips) {
+            BlockNode child = tip;
+            while (child != null && child.height > node.height + 1) {
+                child = child.parent;
+            }
+            if (child != null && child.parent == node) {
+                return child.block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the main chain and the alternative chains, every chain from the genesis block to one of the tips.
+     * The chains of the alternative tips are created on every call.
+     *
+     * @return List of chains, the main chain first
+     */
+    public List<Chain> getAltChains() {
+        BlockNode bestNode = this.bestNode;
+        List<Chain> altChains = new ArrayList<>();
+        altChains.add(chain);
 
-        if (chain != null) {
-            result = chain.get(chain.getChain().indexOf(block) + 1);
+        for (BlockNode tip : tips) {
+            if (tip != bestNode) {
+                altChains.add(new Chain(NETWORK_ID, getPath(tip, null)));
+            }
         }
-        return result;
+        return altChains;
+    }
+
+    /**
+     * Returns the number of chains (the main chain and the alternative chains)
+     *
+     * @return Number of tips of the block tree
+     */
+    public int getChainCount() {
+        return tips.size();
+    }
+
+    /**
+     * Returns the counters of the pruning of alternative chains and the current size of the block tree
+     *
+     * @return Metrics by name
+     */
+    public Map<String, Long> getPruningMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("prunedChains", prunedChains.get());
+        metrics.put("prunedBlocks", prunedBlocks.get());
+        metrics.put("prunedTransactions", prunedTransactions.get());
+        metrics.put("prunedBytes", prunedBytes.get());
+        metrics.put("chains", (long) tips.size());
+        metrics.put("blocks", (long) blockNodes.size());
+        metrics.put("transactions", (long) transactionCache.size());
+        return metrics;
+    }
+
+    /**
+     * Returns the number of blocks an alternative chain may fall behind the best block before it gets pruned
+     *
+     * @return Depth of the pruning (0 or less if the pruning is disabled)
+     */
+    public static int getPruneDepth() {
+        return pruneDepth;
+    }
+
+    /**
+     * Sets the number of blocks an alternative chain may fall behind the best block before it gets pruned
+     *
+     * @param pruneDepth Depth of the pruning (0 or less disables the pruning)
+     */
+    public static void setPruneDepth(int pruneDepth) {
+        Blockchain.pruneDepth = pruneDepth;
+    }
+
+    /**
+     * Returns the hash of the genesis block of the network that is adopted
+     *
+     * @return Hash of the genesis block as hex (null if any valid genesis header is adopted)
+     */
+    public static String getGenesisHash() {
+        return genesisHash;
+    }
+
+    /**
+     * Sets the hash of the genesis block of the network that is adopted
+     *
+     * @param genesisHash Hash of the genesis block as hex (null adopts any valid genesis header)
+     */
+    public static void setGenesisHash(String genesisHash) {
+        Blockchain.genesisHash = genesisHash;
     }
 
     //Getter Setter:
@@ -317,23 +617,29 @@ public class Blockchain {
     }
 
     public byte[] getPreviousHash() {
-        return bestBlock.getBlockHash();
+        return bestNode.block.getBlockHash();
     }
 
     public Block getBlockByHash(byte[] hash) {
-        return blockCache.get(SHA3Util.digestToHex(hash));
+        return getBlock(blockNodes.get(HashKey.of(hash)));
     }
 
     public Block getBlockByHash(String hash) {
-        return blockCache.get(hash);
+        HashKey key = HashKey.fromHex(hash);
+        return (key == null) ? null : getBlock(blockNodes.get(key));
     }
 
     public Block getLatestBlock() {
-        return bestBlock;
+        return bestNode.block;
+    }
+
+    public Transaction getTransactionByHash(byte[] hash) {
+        return transactionCache.get(HashKey.of(hash));
     }
 
     public Transaction getTransactionByHash(String hash) {
-        return transactionCache.get(hash);
+        HashKey key = HashKey.fromHex(hash);
+        return (key == null) ? null : transactionCache.get(key);
     }
 
     public BigInteger getDifficulty() {
@@ -344,47 +650,50 @@ public class Blockchain {
         this.difficulty = difficulty;
     }
 
-    public List<Chain> getAltChains() {
-        return altChains;
-    }
-
-    public void setAltChains(List<Chain> altChains) {
-        this.altChains = altChains;
-    }
-
     public Block getBestBlock() {
-        return bestBlock;
-    }
-
-    public void setBestBlock(Block bestBlock) {
-        this.bestBlock = bestBlock;
+        return bestNode.block;
     }
 
     public Chain getChain() {
         return chain;
     }
 
-    public void setChain(Chain chain) {
-        this.chain = chain;
-    }
-
-    public Map<String, Block> getBlockCache() {
-        return blockCache;
-    }
-
-    public void setBlockCache(Map<String, Block> blockCache) {
-        this.blockCache = blockCache;
-    }
-
-    public Map<String, Transaction> getTransactionCache() {
+    public Map<HashKey, Transaction> getTransactionCache() {
         return transactionCache;
     }
 
-    public void setTransactionCache(Map<String, Transaction> transactionCache) {
+    public void setTransactionCache(Map<HashKey, Transaction> transactionCache) {
         this.transactionCache = transactionCache;
     }
 
     public int size() {
         return chain.size();
     }
+
+    /**
+     * Node of the block tree: a block with its parent and its height (the work of the chain up to it)
+     */
+    private static class BlockNode {
+
+        //Block of the node
+        private final Block block;
+        //Node of the previous block, null for the genesis block
+        private final BlockNode parent;
+        //Height of the block (number of blocks before it)
+        private final int height;
+        //Number of blocks that have this block as previous block
+        private int childCount;
+
+        /**
+         * Creates a new node
+         *
+         * @param block  Block of the node
+         * @param parent Node of the previous block, null for the genesis block
+         */
+        private BlockNode(Block block, BlockNode parent) {
+            this.block = block;
+            this.parent = parent;
+            this.height = (parent == null) ? 0 : parent.height + 1;
+        }
+    }
 }
@@ -51,7 +51,7 @@ public class DependencyManager {
      */
     public static Miner getMiner() {
         if (miner == null) {
-            miner = new Miner();
+            miner = new Miner(Miner.DEFAULT_WORKER_COUNT);
         }
         return miner;
     }
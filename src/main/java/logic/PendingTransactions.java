@@ -3,27 +3,40 @@ package logic;
 import models.Block;
 import models.Transaction;
 import org.apache.log4j.Logger;
+import utils.HashKey;
 import utils.SizeUtil;
-import utils.TransactionComparatorByFee;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This class stores all the pending transactions that not have been added to a block
+ * This class stores all the pending transactions that not have been added to a block.
+ * It is used by the REST, network and miner threads at the same time, so all indexes are concurrent collections
+ * and a transaction is only pending while it is registered in the transaction index.
  */
 public class PendingTransactions {
 
     //Logger to display additional information
     private Logger logger = Logger.getLogger(PendingTransactions.class);
-    //Queue of open pending transactions
-    private PriorityQueue<Transaction> pendingTransactions;
+    //Open pending transactions ordered by their fee (highest first, equal fees by arrival)
+    private NavigableSet<PendingTransaction> transactionsByFee;
+    //Index of the open pending transactions to find and remove a single transaction
+    private Map<Transaction, PendingTransaction> transactionIndex;
+    //Index of the open pending transactions per sender address
+    private Map<HashKey, Set<PendingTransaction>> transactionsBySender;
+    //Arrival counter of the transactions
+    private AtomicLong sequence;
 
     /**
      * Creates a new empty storage for pending transactions
      */
     public PendingTransactions() {
-        Comparator<Transaction> comparator = new TransactionComparatorByFee();
-        pendingTransactions = new PriorityQueue<>(11, comparator);
+        transactionsByFee = new ConcurrentSkipListSet<>();
+        transactionIndex = new ConcurrentHashMap<>();
+        transactionsBySender = new ConcurrentHashMap<>();
+        sequence = new AtomicLong();
     }
 
     /**
@@ -33,7 +46,22 @@ public class PendingTransactions {
      */
     public void addPendingTransaction(Transaction transaction) {
         logger.info("PendingTransactions: Transaction added.");
-        pendingTransactions.add(transaction);
+        PendingTransaction pendingTransaction = new PendingTransaction(transaction, sequence.getAndIncrement());
+        if (transactionIndex.putIfAbsent(transaction, pendingTransaction) != null) {
+            return;
+        }
+
+        transactionsBySender.compute(senderKey(transaction), (key, senderTransactions) -> {
+            Set<PendingTransaction> result = (senderTransactions == null) ? ConcurrentHashMap.newKeySet() : senderTransactions;
+            result.add(pendingTransaction);
+            return result;
+        });
+        transactionsByFee.add(pendingTransaction);
+
+        //The transaction got removed while the secondary indexes were updated
+        if (transactionIndex.get(transaction) != pendingTransaction) {
+            removeFromIndexes(pendingTransaction);
+        }
     }
 
     /**
@@ -56,12 +84,14 @@ public class PendingTransactions {
         List<Transaction> nextTransactions = new ArrayList<>();
 
         int transactionCapacity = SizeUtil.calculateTransactionCapacity();
+        Iterator<PendingTransaction> iterator = transactionsByFee.iterator();
 
-        PriorityQueue<Transaction> temp = new PriorityQueue<>(pendingTransactions);
-
-        while (transactionCapacity > 0 && !temp.isEmpty()) {
-            nextTransactions.add(temp.poll());
-            transactionCapacity--;
+        while (transactionCapacity > 0 && iterator.hasNext()) {
+            PendingTransaction pendingTransaction = iterator.next();
+            if (pendingTransaction.isPendingIn(transactionIndex)) {
+                nextTransactions.add(pendingTransaction.getTransaction());
+                transactionCapacity--;
+            }
         }
         return nextTransactions;
     }
@@ -72,7 +102,23 @@ public class PendingTransactions {
      * @param transaction Transaction to remove
      */
     public void clearPendingTransaction(Transaction transaction) {
-        pendingTransactions.remove(transaction);
+        PendingTransaction pendingTransaction = transactionIndex.remove(transaction);
+        if (pendingTransaction != null) {
+            removeFromIndexes(pendingTransaction);
+        }
+    }
+
+    /**
+     * Removes an entry from the fee ordered set and the sender index
+     *
+     * @param pendingTransaction Entry to remove
+     */
+    private void removeFromIndexes(PendingTransaction pendingTransaction) {
+        transactionsByFee.remove(pendingTransaction);
+        transactionsBySender.computeIfPresent(senderKey(pendingTransaction.getTransaction()), (key, senderTransactions) -> {
+            senderTransactions.remove(pendingTransaction);
+            return senderTransactions.isEmpty() ? null : senderTransactions;
+        });
     }
 
     /**
@@ -90,7 +136,16 @@ public class PendingTransactions {
      * @param transactions Multiple transactions to remove
      */
     public void clearPendingTransactions(Collection<Transaction> transactions) {
-        transactions.forEach(item -> pendingTransactions.remove(item));
+        transactions.forEach(this::clearPendingTransaction);
+    }
+
+    /**
+     * Returns a snapshot of all pending transactions
+     *
+     * @return List of the pending transactions (in no particular order)
+     */
+    public List<Transaction> getPendingTransactions() {
+        return new ArrayList<>(transactionIndex.keySet());
     }
 
     /**
@@ -99,7 +154,16 @@ public class PendingTransactions {
      * @return Returns if there is a transaction in the queue or not
      */
     public boolean pendingTransactionsAvailable() {
-        return !pendingTransactions.isEmpty();
+        return !transactionIndex.isEmpty();
+    }
+
+    /**
+     * Returns the number of pending transactions
+     *
+     * @return Number of pending transactions
+     */
+    public int size() {
+        return transactionIndex.size();
     }
 
     /**
@@ -109,16 +173,76 @@ public class PendingTransactions {
      * @return Returns if there are other correlating transactions in the queue
      */
     public boolean areThereNoOtherTransactionsFor(Transaction transaction) {
-        boolean result = true;
+        Set<PendingTransaction> senderTransactions = transactionsBySender.get(senderKey(transaction));
 
-        for (Transaction pendingTransaction : pendingTransactions) {
-            if (pendingTransaction.equals(transaction)) {
-                continue;
-            }
-            if (Arrays.equals(pendingTransaction.getSender(), transaction.getSender())) {
-                result = false;
+        if (senderTransactions != null) {
+            for (PendingTransaction pendingTransaction : senderTransactions) {
+                if (!pendingTransaction.getTransaction().equals(transaction)) {
+                    return false;
+                }
             }
         }
-        return result;
+        return true;
+    }
+
+    /**
+     * Returns the key of the sender index for a transaction
+     *
+     * @param transaction Transaction
+     * @return Key of the sender address
+     */
+    private HashKey senderKey(Transaction transaction) {
+        return HashKey.of(transaction.getSender());
+    }
+
+    /**
+     * Entry of the fee ordered set: keeps the fee the transaction was added with and its arrival
+     */
+    private static class PendingTransaction implements Comparable<PendingTransaction> {
+
+        //The pending transaction
+        private final Transaction transaction;
+        //Fee base price the transaction was added with (the ordering must not change while it is pending)
+        private final double transactionFeeBasePrice;
+        //Arrival of the transaction, orders transactions with equal fees
+        private final long sequence;
+
+        /**
+         * Creates a new entry
+         *
+         * @param transaction The pending transaction
+         * @param sequence    Arrival of the transaction
+         */
+        private PendingTransaction(Transaction transaction, long sequence) {
+            this.transaction = transaction;
+            this.transactionFeeBasePrice = transaction.getTransactionFeeBasePrice();
+            this.sequence = sequence;
+        }
+
+        /**
+         * Orders by fee (highest first) and by arrival for equal fees
+         *
+         * @param o Entry to compare with
+         * @return Int compare between the two entries
+         */
+        @Override
+        public int compareTo(PendingTransaction o) {
+            int result = Double.compare(o.transactionFeeBasePrice, transactionFeeBasePrice);
+            return (result != 0) ? result : Long.compare(sequence, o.sequence);
+        }
+
+        /**
+         * Checks if this entry is still the registered entry of its transaction
+         *
+         * @param transactionIndex Index of the pending transactions
+         * @return Boolean if the entry is still pending
+         */
+        private boolean isPendingIn(Map<Transaction, PendingTransaction> transactionIndex) {
+            return transactionIndex.get(transaction) == this;
+        }
+
+        private Transaction getTransaction() {
+            return transaction;
+        }
     }
 }
@@ -8,6 +8,7 @@ import utils.SizeUtil;
 import utils.merkle.MerkleTree;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -31,6 +32,8 @@ public class Block {
     private List<Transaction> transactions;
     //Header of the block
     private BlockHeader blockHeader;
+    //Merkle tree of the transactions, built on the first request
+    private volatile MerkleTree merkleTree;
 
     /**
      * Creates a new empty block
@@ -84,11 +87,28 @@ public class Block {
     public void addTransaction(Transaction transaction) {
         this.transactions.add(transaction);
         this.transactionCount++;
+        this.merkleTree = null;
 
         this.blockHeader.setTransactionListHash(getTransactionHash());
         this.blockSize = SizeUtil.calculateBlockSize(this);
     }
 
+    /**
+     * Appends transactions whose merkle root and block size were already calculated (e.g. incrementally by the miner)
+     *
+     * @param transactions        Transactions to append
+     * @param transactionListHash Merkle root over all transactions of the block
+     * @param blockSize           Size of the block with the appended transactions
+     */
+    public void appendTransactions(List<Transaction> transactions, byte[] transactionListHash, int blockSize) {
+        this.transactions.addAll(transactions);
+        this.transactionCount += transactions.size();
+        this.merkleTree = null;
+
+        this.blockHeader.setTransactionListHash(transactionListHash);
+        this.blockSize = blockSize;
+    }
+
     /**
      * Increments the nonce of the block
      *
@@ -110,6 +130,34 @@ public class Block {
         this.blockHeader.setNonce(nonce);
     }
 
+    /**
+     * Returns the merkle tree of the transactions of the block.
+     * The tree is built once and kept until the transactions of the block change.
+     *
+     * @return Merkle tree of the transactions
+     */
+    @JsonIgnore
+    public MerkleTree getMerkleTree() {
+        MerkleTree tree = merkleTree;
+        if (tree == null) {
+            tree = new MerkleTree(transactions);
+            merkleTree = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * Checks if the transactions of the block match the merkle root of the header.
+     * Transactions whose Ids differ in size can not form a merkle tree and never match.
+     *
+     * @return Boolean if the transactions match the header or not
+     */
+    @JsonIgnore
+    public boolean hasValidMerkleRoot() {
+        return MerkleTree.hasUniformTxIds(transactions)
+                && Arrays.equals(blockHeader.getTransactionListHash(), getMerkleTree().getMerkleTreeRoot());
+    }
+
     @JsonConverter(HashConverter.class)
     public byte[] getBlockHash() {
         return blockHeader.asHash();
@@ -162,6 +210,7 @@ public class Block {
 
     public void setTransactions(List<Transaction> transactions) {
         this.transactions = transactions;
+        this.merkleTree = null;
     }
 
     public BlockHeader getBlockHeader() {
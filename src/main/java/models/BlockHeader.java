@@ -2,9 +2,11 @@ package models;
 
 import api.converters.HashConverter;
 import com.owlike.genson.annotation.JsonConverter;
+import com.owlike.genson.annotation.JsonIgnore;
 import logic.Blockchain;
 import org.apache.log4j.Logger;
 import utils.SHA3Util;
+import utils.SizeUtil;
 
 import java.io.Serializable;
 
@@ -13,8 +15,21 @@ import java.io.Serializable;
  */
 public class BlockHeader implements Serializable {
 
+    //Size of a hash inside the binary encoding of the header
+    public final static int HASH_SIZE = 32;
+    //Size of the binary encoding of the header
+    public final static int ENCODED_SIZE = SizeUtil.BLOCK_HEADER_SIZE_IN_BYTES;
+    //Offsets of the fields inside the binary encoding (the nonce is last so mining only patches the trailing bytes)
+    private final static int VERSION_OFFSET = 0;
+    private final static int TIMESTAMP_OFFSET = 4;
+    private final static int PREVIOUS_HASH_OFFSET = 12;
+    private final static int TRANSACTION_LIST_HASH_OFFSET = PREVIOUS_HASH_OFFSET + HASH_SIZE;
+    public final static int NONCE_OFFSET = TRANSACTION_LIST_HASH_OFFSET + HASH_SIZE;
+    //Reusable encoding buffer per thread for asHash
+    private final static ThreadLocal<byte[]> ENCODING_BUFFER = ThreadLocal.withInitial(() -> new byte[ENCODED_SIZE]);
+
     //Logger to display additional information
-    Logger logger = Logger.getLogger(BlockHeader.class);
+    private static Logger logger = Logger.getLogger(BlockHeader.class);
     //Version of the blockchain
     private int version = Blockchain.VERSION;
     //Nonce for the miners to modify
@@ -124,12 +139,112 @@ public class BlockHeader implements Serializable {
     }
 
 
+    /**
+     * Returns the fixed layout binary encoding of the header:
+     * version (4), timestamp (8), previous hash (32), transaction list hash (32), nonce (4), all big endian
+     *
+     * @return Binary encoding of the header
+     */
+    public byte[] asBytes() {
+        byte[] buffer = new byte[ENCODED_SIZE];
+        writeTo(buffer);
+        return buffer;
+    }
+
+    /**
+     * Writes the binary encoding of the header into the given buffer
+     *
+     * @param buffer Buffer with at least ENCODED_SIZE bytes
+     * @throws IllegalArgumentException if a hash of the header is null or not HASH_SIZE bytes long
+     */
+    public void writeTo(byte[] buffer) {
+        writeInt(buffer, VERSION_OFFSET, version);
+        writeLong(buffer, TIMESTAMP_OFFSET, timestamp);
+        writeHash(buffer, PREVIOUS_HASH_OFFSET, previousHash);
+        writeHash(buffer, TRANSACTION_LIST_HASH_OFFSET, transactionListHash);
+        writeNonce(buffer, nonce);
+    }
+
+    /**
+     * Patches the nonce of an already encoded header
+     *
+     * @param buffer Binary encoding of a header
+     * @param nonce  Nonce to write
+     */
+    public static void writeNonce(byte[] buffer, int nonce) {
+        writeInt(buffer, NONCE_OFFSET, nonce);
+    }
+
+    /**
+     * Writes an int big endian into the buffer
+     *
+     * @param buffer Buffer to write to
+     * @param offset Offset inside the buffer
+     * @param value  Value to write
+     */
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Writes a long big endian into the buffer
+     *
+     * @param buffer Buffer to write to
+     * @param offset Offset inside the buffer
+     * @param value  Value to write
+     */
+    private static void writeLong(byte[] buffer, int offset, long value) {
+        writeInt(buffer, offset, (int) (value >>> 32));
+        writeInt(buffer, offset + 4, (int) value);
+    }
+
+    /**
+     * Writes a hash into its fixed size slot of the buffer
+     *
+     * @param buffer Buffer to write to
+     * @param offset Offset inside the buffer
+     * @param hash   Hash to write
+     * @throws IllegalArgumentException if the hash is null or not HASH_SIZE bytes long
+     */
+    private static void writeHash(byte[] buffer, int offset, byte[] hash) {
+        if (!isValidHash(hash)) {
+            throw new IllegalArgumentException("Hashes of a block header must have " + HASH_SIZE + " bytes");
+        }
+        System.arraycopy(hash, 0, buffer, offset, HASH_SIZE);
+    }
+
+    /**
+     * Checks if a hash fits into the binary encoding of a header
+     *
+     * @param hash Hash to check
+     * @return Boolean if the hash has HASH_SIZE bytes or not
+     */
+    public static boolean isValidHash(byte[] hash) {
+        return hash != null && hash.length == HASH_SIZE;
+    }
+
+    /**
+     * Checks if the previous hash and the transaction list hash fit into the binary encoding of the header.
+     * Only headers with valid hashes can be encoded and hashed.
+     *
+     * @return Boolean if both hashes have HASH_SIZE bytes or not
+     */
+    @JsonIgnore
+    public boolean hasValidHashes() {
+        return isValidHash(previousHash) && isValidHash(transactionListHash);
+    }
+
     /**
      * Returns the hash of itself
      *
      * @return Hash of itself
      */
     public byte[] asHash() {
-        return SHA3Util.hash256(this);
+        byte[] buffer = ENCODING_BUFFER.get();
+        writeTo(buffer);
+        return SHA3Util.hash256(buffer);
     }
 }
@@ -1,19 +1,22 @@
 package models;
 
 import org.apache.log4j.Logger;
+import utils.SegmentedList;
 
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Class that represents the chain of a blockchain
+ * Class that represents the chain of a blockchain.
+ * The blocks are stored in a segmented list: appending a block does not copy the chain and readers never see a
+ * partially added block. The list of blocks is handed out as an immutable snapshot, so readers that iterate it are
+ * not affected by a concurrent chain switch.
  */
 public class Chain {
 
     //Logger to display additional information
     private Logger logger = Logger.getLogger(Chain.class);
     //List of blocks of the chain
-    private List<Block> chain = new CopyOnWriteArrayList<>();
+    private SegmentedList<Block> chain = new SegmentedList<>();
     //Network Id of the blockchain network
     private int networkId;
 
@@ -28,12 +31,12 @@ public class Chain {
      * creates a new chain with a network Id and an already existing list ob blocks
      *
      * @param networkId Network Id of the blockchain network
-     * @param chain     Chain of blocks
+     * @param chain     Chain of blocks (the blocks are copied)
      */
     public Chain(int networkId, List<Block> chain) {
         this();
         this.networkId = networkId;
-        this.chain = chain;
+        this.chain = new SegmentedList<>(chain);
     }
 
     /**
@@ -57,6 +60,18 @@ public class Chain {
         chain.add(block);
     }
 
+    /**
+     * Removes all blocks from the given height on (used to cut the chain back to a fork)
+     *
+     * @param size New size of the chain
+     */
+    public void truncate(int size) {
+        if (size < chain.size()) {
+            logger.info("Chain: Chain truncated.");
+            chain.truncate(size);
+        }
+    }
+
     /**
      * Returns a block of the chain
      *
@@ -64,11 +79,7 @@ public class Chain {
      * @return Block or null if the index doesnt exist
      */
     public Block get(int index) {
-        if (index < chain.size()) {
-            return chain.get(index);
-        } else {
-            return null;
-        }
+        return chain.getIfPresent(index);
     }
 
     /**
@@ -77,7 +88,8 @@ public class Chain {
      * @return Last block of the chain
      */
     public Block getLast() {
-        return chain.get((chain.size() == 0) ? 0 : (chain.size() - 1));
+        List<Block> blocks = chain.snapshot();
+        return blocks.get((blocks.size() == 0) ? 0 : (blocks.size() - 1));
     }
 
     /**
@@ -91,13 +103,18 @@ public class Chain {
 
     //Getter Setter:
 
+    /**
+     * Returns an immutable snapshot of the blocks of the chain
+     *
+     * @return Blocks of the chain
+     */
     public List<Block> getChain() {
-        return chain;
+        return chain.snapshot();
     }
 
     public void setChain(List<Block> chain) {
         logger.info("Chain: New chain set.");
-        this.chain = chain;
+        this.chain = new SegmentedList<>(chain);
     }
 
     public int getNetworkId() {
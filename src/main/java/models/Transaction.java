@@ -7,7 +7,9 @@ import org.apache.log4j.Logger;
 import utils.SHA3Util;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
@@ -19,8 +21,14 @@ import java.util.Objects;
  */
 public class Transaction implements Serializable {
 
-    //Logger to display additional information
-    private Logger logger = Logger.getLogger(Transaction.class);
+    //Logger to display additional information (static, otherwise the transaction could not be serialized and hashed)
+    private static Logger logger = Logger.getLogger(Transaction.class);
+    //Format of the fee in the JSON representation, DecimalFormat is not thread safe
+    private static final ThreadLocal<DecimalFormat> FEE_FORMAT = ThreadLocal.withInitial(() -> {
+        DecimalFormat df = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+        df.setMaximumFractionDigits(340);
+        return df;
+    });
 
     //The sender of the transaction (senderaddress)
     private byte[] sender;
@@ -36,8 +44,14 @@ public class Transaction implements Serializable {
     private double transactionFeeLimit;
     //The optional data stored in the transaction
     private byte[] data;
-    //The transaction Id / Hash
+    //The transaction Id / Hash if it was set explicitly (e.g. received from the network), overrides the calculated Id
     private transient byte[] txId;
+    //The calculated transaction Id / Hash, cached until a hashed field changes
+    private transient volatile byte[] calculatedTxId;
+    //The transaction Id as hex String, cached until the Id changes
+    private transient volatile String txIdAsString;
+    //The signed payload (JSON representation as UTF-8 bytes), cached until a signed field changes
+    private transient volatile byte[] signingPayload;
     //Timestamp of the transaction
     private transient long timeStamp;
     //Block Id / Hash of the block
@@ -124,10 +138,21 @@ public class Transaction implements Serializable {
 
     /**
      * Creates the txId / Hash of the Transaction.
+     * The Id is calculated on first use and cached until a hashed field changes.
      */
     private void createTxId() {
         logger.info("Transaction: New transaction created.");
-        this.txId = SHA3Util.hash256(this);
+        invalidateCaches();
+    }
+
+    /**
+     * Drops the cached transaction Id and signed payload after a field of the transaction changed.
+     * Byte Arrays of the transaction must not be modified in place.
+     */
+    private void invalidateCaches() {
+        this.calculatedTxId = null;
+        this.txIdAsString = null;
+        this.signingPayload = null;
     }
 
     /**
@@ -154,8 +179,7 @@ public class Transaction implements Serializable {
      * @return JSON string
      */
     public String asJSONString() {
-        DecimalFormat df = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-        df.setMaximumFractionDigits(340);
+        DecimalFormat df = FEE_FORMAT.get();
 
         return "{" +
                 "\"sender\":\"" + SHA3Util.digestToHex(sender) + '\"' +
@@ -167,6 +191,66 @@ public class Transaction implements Serializable {
                 '}';
     }
 
+    /**
+     * Returns the fixed binary encoding of the hashed fields the transaction Id is calculated from:
+     * sender, receiver and data each as length (4, -1 for null) followed by the bytes, then amount (8), nonce (4),
+     * fee base price (8) and fee limit (8), all big endian
+     *
+     * @return Binary encoding of the hashed fields
+     */
+    public byte[] asBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * 4 + length(sender) + length(receiver) + length(data) + 3 * 8 + 4);
+        putBytes(buffer, sender);
+        putBytes(buffer, receiver);
+        putBytes(buffer, data);
+        buffer.putDouble(amount);
+        buffer.putInt(nonce);
+        buffer.putDouble(transactionFeeBasePrice);
+        buffer.putDouble(transactionFeeLimit);
+        return buffer.array();
+    }
+
+    /**
+     * Returns the length of a byte Array of the encoding
+     *
+     * @param bytes Byte Array (may be null)
+     * @return Length, 0 for null
+     */
+    private static int length(byte[] bytes) {
+        return (bytes == null) ? 0 : bytes.length;
+    }
+
+    /**
+     * Writes a byte Array with its length into the buffer
+     *
+     * @param buffer Buffer to write to
+     * @param bytes  Byte Array to write (may be null)
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Returns the payload that is signed by the sender (the JSON representation as UTF-8 bytes).
+     * The payload is cached and must not be modified.
+     *
+     * @return Signed payload
+     */
+    @JsonIgnore
+    public byte[] getSigningPayload() {
+        byte[] payload = signingPayload;
+        if (payload == null) {
+            payload = asJSONString().getBytes(StandardCharsets.UTF_8);
+            signingPayload = payload;
+        }
+        return payload;
+    }
+
     /**
      * Compares two transactions
      *
@@ -184,7 +268,7 @@ public class Transaction implements Serializable {
                 nonce == that.nonce &&
                 Double.compare(that.transactionFeeBasePrice, transactionFeeBasePrice) == 0 &&
                 Double.compare(that.transactionFeeLimit, transactionFeeLimit) == 0 &&
-                Arrays.equals(txId, that.txId) &&
+                Arrays.equals(getTxId(), that.getTxId()) &&
                 Arrays.equals(sender, that.sender) &&
                 Arrays.equals(receiver, that.receiver);
     }
@@ -197,7 +281,7 @@ public class Transaction implements Serializable {
     @Override
     public int hashCode() {
         int result = Objects.hash(amount, nonce, transactionFeeBasePrice, transactionFeeLimit);
-        result = 31 * result + Arrays.hashCode(txId);
+        result = 31 * result + Arrays.hashCode(getTxId());
         result = 31 * result + Arrays.hashCode(sender);
         result = 31 * result + Arrays.hashCode(receiver);
         return result;
@@ -207,7 +291,12 @@ public class Transaction implements Serializable {
 
     @JsonIgnore
     public String getTxIdAsString() {
-        return SHA3Util.hash256AsHex(this);
+        String hex = txIdAsString;
+        if (hex == null) {
+            hex = SHA3Util.digestToHex(getTxId());
+            txIdAsString = hex;
+        }
+        return hex;
     }
 
     @JsonIgnore
@@ -222,11 +311,20 @@ public class Transaction implements Serializable {
 
     @JsonConverter(HashConverter.class)
     public byte[] getTxId() {
-        return txId;
+        byte[] id = txId;
+        if (id == null) {
+            id = calculatedTxId;
+            if (id == null) {
+                id = SHA3Util.hash256(asBytes());
+                calculatedTxId = id;
+            }
+        }
+        return id;
     }
 
     public void setTxId(byte[] txId) {
         this.txId = txId;
+        this.txIdAsString = null;
     }
 
     @JsonConverter(HashConverter.class)
@@ -237,6 +335,7 @@ public class Transaction implements Serializable {
     @JsonConverter(HashConverter.class)
     public void setSender(byte[] sender) {
         this.sender = sender;
+        invalidateCaches();
     }
 
     @JsonConverter(HashConverter.class)
@@ -247,6 +346,7 @@ public class Transaction implements Serializable {
     @JsonConverter(HashConverter.class)
     public void setReceiver(byte[] receiver) {
         this.receiver = receiver;
+        invalidateCaches();
     }
 
     public double getAmount() {
@@ -255,6 +355,7 @@ public class Transaction implements Serializable {
 
     public void setAmount(double amount) {
         this.amount = amount;
+        invalidateCaches();
     }
 
     public int getNonce() {
@@ -263,6 +364,7 @@ public class Transaction implements Serializable {
 
     public void setNonce(int nonce) {
         this.nonce = nonce;
+        invalidateCaches();
     }
 
     public double getTransactionFeeBasePrice() {
@@ -271,6 +373,7 @@ public class Transaction implements Serializable {
 
     public void setTransactionFeeBasePrice(double transactionFeeBasePrice) {
         this.transactionFeeBasePrice = transactionFeeBasePrice;
+        invalidateCaches();
     }
 
     public double getTransactionFeeLimit() {
@@ -279,6 +382,7 @@ public class Transaction implements Serializable {
 
     public void setTransactionFeeLimit(double transactionFeeLimit) {
         this.transactionFeeLimit = transactionFeeLimit;
+        invalidateCaches();
     }
 
     public byte[] getData() {
@@ -287,6 +391,7 @@ public class Transaction implements Serializable {
 
     public void setData(byte[] data) {
         this.data = data;
+        invalidateCaches();
     }
 
     public long getTimeStamp() {
@@ -0,0 +1,831 @@
+package network;
+
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary encoding of the network messages (alternative to the JSON adapters).
+ * Every message starts with a magic byte, the codec version and a type byte, the fields follow in a fixed order.
+ * Byte Arrays (hashes, addresses, signatures) are written raw with a length prefix, numbers in their binary form.
+ */
+public final class BinaryCodec {
+
+    //First byte of every binary message (JSON messages start with '{')
+    public static final byte MAGIC = (byte) 0xB1;
+    //Version of the encoding
+    public static final byte VERSION = 1;
+    //Size of the message header (magic, version, type)
+    public static final int HEADER_SIZE = 3;
+
+    //Announces that the sender understands binary messages
+    public static final byte TYPE_HELLO = 0;
+    //A single transaction
+    public static final byte TYPE_TRANSACTION = 1;
+    //A block with all its transactions
+    public static final byte TYPE_BLOCK = 2;
+    //Request for the blocks of the main chain from a height on
+    public static final byte TYPE_SYNC_REQUEST = 3;
+    //Blocks of the main chain (answer to a sync request)
+    public static final byte TYPE_SYNC_CHUNK = 4;
+    //Request for the headers of the main chain from a height on
+    public static final byte TYPE_GET_HEADERS = 5;
+    //Headers of the main chain (answer to a header request)
+    public static final byte TYPE_HEADERS = 6;
+    //Request for blocks by their hashes
+    public static final byte TYPE_GET_BLOCKS = 7;
+    //Requested blocks
+    public static final byte TYPE_BLOCKS = 8;
+    //A block with short transaction Ids instead of its transactions
+    public static final byte TYPE_COMPACT_BLOCK = 9;
+    //Request for transactions of a compact block
+    public static final byte TYPE_GET_BLOCK_TRANSACTIONS = 10;
+    //Requested transactions of a compact block
+    public static final byte TYPE_BLOCK_TRANSACTIONS = 11;
+    //Ids of new transactions the sender can deliver
+    public static final byte TYPE_INVENTORY = 12;
+    //Request for transactions by their Ids
+    public static final byte TYPE_GET_TRANSACTIONS = 13;
+    //Multiple transactions
+    public static final byte TYPE_TRANSACTIONS = 14;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Checks if a received buffer contains a binary message
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Boolean if the message is binary encoded
+     */
+    public static boolean isBinary(byte[] buffer, int offset, int length) {
+        return length >= HEADER_SIZE && buffer[offset] == MAGIC;
+    }
+
+    /**
+     * Returns the type of a binary message
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @return Type of the message
+     * @throws IOException if the message was encoded with a newer version
+     */
+    public static byte getType(byte[] buffer, int offset) throws IOException {
+        if (buffer[offset + 1] > VERSION) {
+            throw new IOException("Unsupported binary codec version " + buffer[offset + 1]);
+        }
+        return buffer[offset + 2];
+    }
+
+    /**
+     * Encodes the hello message
+     *
+     * @return Encoded message
+     */
+    public static byte[] encodeHello() {
+        return new byte[]{MAGIC, VERSION, TYPE_HELLO};
+    }
+
+    /**
+     * Encodes a transaction
+     *
+     * @param transaction Transaction to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeTransaction(Transaction transaction) {
+        return encode(TYPE_TRANSACTION, out -> writeTransaction(out, transaction));
+    }
+
+    /**
+     * Decodes a transaction
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded transaction
+     * @throws IOException if the message is malformed
+     */
+    public static Transaction decodeTransaction(byte[] buffer, int offset, int length) throws IOException {
+        return readTransaction(open(buffer, offset, length, TYPE_TRANSACTION));
+    }
+
+    /**
+     * Encodes a block
+     *
+     * @param block Block to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeBlock(Block block) {
+        return encode(TYPE_BLOCK, out -> writeBlock(out, block));
+    }
+
+    /**
+     * Decodes a block
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded block
+     * @throws IOException if the message is malformed
+     */
+    public static Block decodeBlock(byte[] buffer, int offset, int length) throws IOException {
+        return readBlock(open(buffer, offset, length, TYPE_BLOCK));
+    }
+
+    /**
+     * Encodes a sync request
+     *
+     * @param fromHeight Height of the first requested block
+     * @return Encoded message
+     */
+    public static byte[] encodeSyncRequest(int fromHeight) {
+        return encode(TYPE_SYNC_REQUEST, out -> writeVarInt(out, fromHeight));
+    }
+
+    /**
+     * Decodes a sync request
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Height of the first requested block
+     * @throws IOException if the message is malformed
+     */
+    public static int decodeSyncRequest(byte[] buffer, int offset, int length) throws IOException {
+        return readVarInt(open(buffer, offset, length, TYPE_SYNC_REQUEST));
+    }
+
+    /**
+     * Encodes a sync chunk
+     *
+     * @param chunk Chunk to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeSyncChunk(SyncChunk chunk) {
+        return encode(TYPE_SYNC_CHUNK, out -> {
+            writeVarInt(out, chunk.getFromHeight());
+            writeVarInt(out, chunk.getChainHeight());
+            writeVarInt(out, chunk.getBlocks().size());
+            for (Block block : chunk.getBlocks()) {
+                writeBlock(out, block);
+            }
+        });
+    }
+
+    /**
+     * Decodes a sync chunk
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded chunk
+     * @throws IOException if the message is malformed
+     */
+    public static SyncChunk decodeSyncChunk(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_SYNC_CHUNK);
+        int fromHeight = readVarInt(in);
+        int chainHeight = readVarInt(in);
+        int blockCount = readVarInt(in);
+
+        List<Block> blocks = new ArrayList<>(Math.min(blockCount, 1 << 10));
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(readBlock(in));
+        }
+        return new SyncChunk(fromHeight, chainHeight, blocks);
+    }
+
+    /**
+     * Encodes a header request
+     *
+     * @param fromHeight Height of the first requested header
+     * @return Encoded message
+     */
+    public static byte[] encodeGetHeaders(int fromHeight) {
+        return encode(TYPE_GET_HEADERS, out -> writeVarInt(out, fromHeight));
+    }
+
+    /**
+     * Decodes a header request
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Height of the first requested header
+     * @throws IOException if the message is malformed
+     */
+    public static int decodeGetHeaders(byte[] buffer, int offset, int length) throws IOException {
+        return readVarInt(open(buffer, offset, length, TYPE_GET_HEADERS));
+    }
+
+    /**
+     * Encodes a header chunk
+     *
+     * @param chunk Chunk to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeHeaders(HeaderChunk chunk) {
+        return encode(TYPE_HEADERS, out -> {
+            writeVarInt(out, chunk.getFromHeight());
+            writeVarInt(out, chunk.getChainHeight());
+            writeVarInt(out, chunk.getHeaders().size());
+            for (BlockHeader header : chunk.getHeaders()) {
+                writeBlockHeader(out, header);
+            }
+        });
+    }
+
+    /**
+     * Decodes a header chunk
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded chunk
+     * @throws IOException if the message is malformed
+     */
+    public static HeaderChunk decodeHeaders(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_HEADERS);
+        int fromHeight = readVarInt(in);
+        int chainHeight = readVarInt(in);
+        int headerCount = readVarInt(in);
+
+        List<BlockHeader> headers = new ArrayList<>(Math.min(headerCount, 1 << 12));
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(readBlockHeader(in));
+        }
+        return new HeaderChunk(fromHeight, chainHeight, headers);
+    }
+
+    /**
+     * Encodes a block request
+     *
+     * @param hashes Hashes of the requested blocks
+     * @return Encoded message
+     */
+    public static byte[] encodeGetBlocks(List<byte[]> hashes) {
+        return encode(TYPE_GET_BLOCKS, out -> writeHashes(out, hashes));
+    }
+
+    /**
+     * Decodes a block request
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Hashes of the requested blocks
+     * @throws IOException if the message is malformed
+     */
+    public static List<byte[]> decodeGetBlocks(byte[] buffer, int offset, int length) throws IOException {
+        return readHashes(open(buffer, offset, length, TYPE_GET_BLOCKS));
+    }
+
+    /**
+     * Encodes requested blocks
+     *
+     * @param blocks Blocks to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeBlocks(List<Block> blocks) {
+        return encode(TYPE_BLOCKS, out -> {
+            writeVarInt(out, blocks.size());
+            for (Block block : blocks) {
+                writeBlock(out, block);
+            }
+        });
+    }
+
+    /**
+     * Decodes requested blocks
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded blocks
+     * @throws IOException if the message is malformed
+     */
+    public static List<Block> decodeBlocks(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_BLOCKS);
+        int blockCount = readVarInt(in);
+
+        List<Block> blocks = new ArrayList<>(Math.min(blockCount, 1 << 10));
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(readBlock(in));
+        }
+        return blocks;
+    }
+
+    /**
+     * Encodes a compact block
+     *
+     * @param compactBlock Compact block to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeCompactBlock(CompactBlock compactBlock) {
+        return encode(TYPE_COMPACT_BLOCK, out -> {
+            writeBlock(out, compactBlock.getBlock());
+            long[] shortIds = compactBlock.getShortIds();
+            writeVarInt(out, shortIds.length);
+            for (long shortId : shortIds) {
+                for (int shift = 8 * (CompactBlock.SHORT_ID_SIZE - 1); shift >= 0; shift -= 8) {
+                    out.writeByte((int) (shortId >>> shift));
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes a compact block
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded compact block
+     * @throws IOException if the message is malformed
+     */
+    public static CompactBlock decodeCompactBlock(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_COMPACT_BLOCK);
+        Block block = readBlock(in);
+        int shortIdCount = readVarInt(in);
+        if (shortIdCount > length / CompactBlock.SHORT_ID_SIZE) {
+            throw new IOException("Invalid number of short ids: " + shortIdCount);
+        }
+
+        long[] shortIds = new long[shortIdCount];
+        for (int i = 0; i < shortIdCount; i++) {
+            long shortId = 0;
+            for (int j = 0; j < CompactBlock.SHORT_ID_SIZE; j++) {
+                shortId = (shortId << 8) | in.readUnsignedByte();
+            }
+            shortIds[i] = shortId;
+        }
+        return new CompactBlock(block, shortIds);
+    }
+
+    /**
+     * Encodes a request for transactions of a compact block
+     *
+     * @param blockHash Hash of the block
+     * @param indexes   Indexes of the requested transactions
+     * @return Encoded message
+     */
+    public static byte[] encodeGetBlockTransactions(byte[] blockHash, List<Integer> indexes) {
+        return encode(TYPE_GET_BLOCK_TRANSACTIONS, out -> {
+            writeBytes(out, blockHash);
+            writeIndexes(out, indexes);
+        });
+    }
+
+    /**
+     * Decodes a request for transactions of a compact block
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Requested transactions (without transactions)
+     * @throws IOException if the message is malformed
+     */
+    public static BlockTransactions decodeGetBlockTransactions(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_GET_BLOCK_TRANSACTIONS);
+        return new BlockTransactions(readBytes(in), readIndexes(in), new ArrayList<>());
+    }
+
+    /**
+     * Encodes requested transactions of a compact block
+     *
+     * @param blockTransactions Requested transactions
+     * @return Encoded message
+     */
+    public static byte[] encodeBlockTransactions(BlockTransactions blockTransactions) {
+        return encode(TYPE_BLOCK_TRANSACTIONS, out -> {
+            writeBytes(out, blockTransactions.getBlockHash());
+            writeIndexes(out, blockTransactions.getIndexes());
+            for (Transaction transaction : blockTransactions.getTransactions()) {
+                writeTransaction(out, transaction);
+            }
+        });
+    }
+
+    /**
+     * Decodes requested transactions of a compact block
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Requested transactions
+     * @throws IOException if the message is malformed
+     */
+    public static BlockTransactions decodeBlockTransactions(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_BLOCK_TRANSACTIONS);
+        byte[] blockHash = readBytes(in);
+        List<Integer> indexes = readIndexes(in);
+
+        List<Transaction> transactions = new ArrayList<>(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            transactions.add(readTransaction(in));
+        }
+        return new BlockTransactions(blockHash, indexes, transactions);
+    }
+
+    /**
+     * Encodes an inventory announcement
+     *
+     * @param txIds Ids of the announced transactions
+     * @return Encoded message
+     */
+    public static byte[] encodeInventory(List<byte[]> txIds) {
+        return encode(TYPE_INVENTORY, out -> writeHashes(out, txIds));
+    }
+
+    /**
+     * Decodes an inventory announcement
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Ids of the announced transactions
+     * @throws IOException if the message is malformed
+     */
+    public static List<byte[]> decodeInventory(byte[] buffer, int offset, int length) throws IOException {
+        return readHashes(open(buffer, offset, length, TYPE_INVENTORY));
+    }
+
+    /**
+     * Encodes a request for transactions
+     *
+     * @param txIds Ids of the requested transactions
+     * @return Encoded message
+     */
+    public static byte[] encodeGetTransactions(List<byte[]> txIds) {
+        return encode(TYPE_GET_TRANSACTIONS, out -> writeHashes(out, txIds));
+    }
+
+    /**
+     * Decodes a request for transactions
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Ids of the requested transactions
+     * @throws IOException if the message is malformed
+     */
+    public static List<byte[]> decodeGetTransactions(byte[] buffer, int offset, int length) throws IOException {
+        return readHashes(open(buffer, offset, length, TYPE_GET_TRANSACTIONS));
+    }
+
+    /**
+     * Encodes multiple transactions
+     *
+     * @param transactions Transactions to encode
+     * @return Encoded message
+     */
+    public static byte[] encodeTransactions(List<Transaction> transactions) {
+        return encode(TYPE_TRANSACTIONS, out -> {
+            writeVarInt(out, transactions.size());
+            for (Transaction transaction : transactions) {
+                writeTransaction(out, transaction);
+            }
+        });
+    }
+
+    /**
+     * Decodes multiple transactions
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @return Decoded transactions
+     * @throws IOException if the message is malformed
+     */
+    public static List<Transaction> decodeTransactions(byte[] buffer, int offset, int length) throws IOException {
+        DataInputStream in = open(buffer, offset, length, TYPE_TRANSACTIONS);
+        int transactionCount = readVarInt(in);
+
+        List<Transaction> transactions = new ArrayList<>(Math.min(transactionCount, 1 << 16));
+        for (int i = 0; i < transactionCount; i++) {
+            transactions.add(readTransaction(in));
+        }
+        return transactions;
+    }
+
+    /**
+     * Encodes a message with the given type
+     *
+     * @param type   Type of the message
+     * @param writer Writes the fields of the message
+     * @return Encoded message
+     */
+    static byte[] encode(byte type, FieldWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+        } catch (IOException e) {
+            //Writing to a ByteArrayOutputStream does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Opens a message for reading the fields and checks its header
+     *
+     * @param buffer Received buffer
+     * @param offset Offset of the message
+     * @param length Length of the message
+     * @param type   Expected type of the message
+     * @return Stream positioned at the first field
+     * @throws IOException if the message has a different type or version
+     */
+    static DataInputStream open(byte[] buffer, int offset, int length, byte type) throws IOException {
+        if (!isBinary(buffer, offset, length) || getType(buffer, offset) != type) {
+            throw new IOException("Message is not a binary message of type " + type);
+        }
+        return new DataInputStream(new ByteArrayInputStream(buffer, offset + HEADER_SIZE, length - HEADER_SIZE));
+    }
+
+    /**
+     * Writes a transaction
+     *
+     * @param out         Stream to write to
+     * @param transaction Transaction to write
+     * @throws IOException if the stream fails
+     */
+    static void writeTransaction(DataOutputStream out, Transaction transaction) throws IOException {
+        writeBytes(out, transaction.getTxId());
+        writeBytes(out, transaction.getSender());
+        writeBytes(out, transaction.getReceiver());
+        writeBytes(out, transaction.getData());
+        out.writeDouble(transaction.getAmount());
+        out.writeInt(transaction.getNonce());
+        out.writeDouble(transaction.getTransactionFeeBasePrice());
+        out.writeDouble(transaction.getTransactionFeeLimit());
+        out.writeLong(transaction.getTimeStamp());
+        writeBytes(out, transaction.getBlockId());
+        writeBytes(out, transaction.getSignature());
+        out.writeDouble(transaction.getTransactionFee());
+        writeVarInt(out, transaction.getSizeInByte());
+    }
+
+    /**
+     * Reads a transaction
+     *
+     * @param in Stream to read from
+     * @return Transaction
+     * @throws IOException if the stream is malformed
+     */
+    static Transaction readTransaction(DataInputStream in) throws IOException {
+        byte[] txId = readBytes(in);
+        Transaction transaction = new Transaction();
+        transaction.setSender(readBytes(in));
+        transaction.setReceiver(readBytes(in));
+        transaction.setData(readBytes(in));
+        transaction.setAmount(in.readDouble());
+        transaction.setNonce(in.readInt());
+        transaction.setTransactionFeeBasePrice(in.readDouble());
+        transaction.setTransactionFeeLimit(in.readDouble());
+        transaction.setTimeStamp(in.readLong());
+        transaction.setBlockId(readBytes(in));
+        transaction.setSignature(readBytes(in));
+        transaction.setTransactionFee(in.readDouble());
+        transaction.setSizeInByte(readVarInt(in));
+        transaction.setTxId(txId);
+        return transaction;
+    }
+
+    /**
+     * Writes a block header
+     *
+     * @param out         Stream to write to
+     * @param blockHeader Block header to write
+     * @throws IOException if the stream fails
+     */
+    static void writeBlockHeader(DataOutputStream out, BlockHeader blockHeader) throws IOException {
+        out.writeInt(blockHeader.getVersion());
+        out.writeInt(blockHeader.getNonce());
+        out.writeLong(blockHeader.getTimestamp());
+        writeBytes(out, blockHeader.getPreviousHash());
+        writeBytes(out, blockHeader.getTransactionListHash());
+    }
+
+    /**
+     * Reads a block header
+     *
+     * @param in Stream to read from
+     * @return Block header
+     * @throws IOException if the stream is malformed
+     */
+    static BlockHeader readBlockHeader(DataInputStream in) throws IOException {
+        BlockHeader blockHeader = new BlockHeader();
+        blockHeader.setVersion(in.readInt());
+        blockHeader.setNonce(in.readInt());
+        blockHeader.setTimestamp(in.readLong());
+        blockHeader.setPreviousHash(readBytes(in));
+        blockHeader.setTransactionListHash(readBytes(in));
+        return blockHeader;
+    }
+
+    /**
+     * Writes a block with all its transactions
+     *
+     * @param out   Stream to write to
+     * @param block Block to write
+     * @throws IOException if the stream fails
+     */
+    static void writeBlock(DataOutputStream out, Block block) throws IOException {
+        out.writeInt(block.getMagicNumber());
+        writeVarInt(out, block.getBlockSize());
+        writeVarInt(out, block.getTransactionCount());
+        writeVarInt(out, block.getBlockNumber());
+        writeBytes(out, block.getCoinbase());
+        writeBlockHeader(out, block.getBlockHeader());
+
+        List<Transaction> transactions = block.getTransactions();
+        writeVarInt(out, transactions.size());
+        for (Transaction transaction : transactions) {
+            writeTransaction(out, transaction);
+        }
+    }
+
+    /**
+     * Reads a block with all its transactions
+     *
+     * @param in Stream to read from
+     * @return Block
+     * @throws IOException if the stream is malformed
+     */
+    static Block readBlock(DataInputStream in) throws IOException {
+        Block block = new Block();
+        block.setMagicNumber(in.readInt());
+        block.setBlockSize(readVarInt(in));
+        block.setTransactionCount(readVarInt(in));
+        block.setBlockNumber(readVarInt(in));
+        block.setCoinbase(readBytes(in));
+        block.setBlockHeader(readBlockHeader(in));
+
+        int transactionCount = readVarInt(in);
+        List<Transaction> transactions = new ArrayList<>(Math.min(transactionCount, 1 << 16));
+        for (int i = 0; i < transactionCount; i++) {
+            transactions.add(readTransaction(in));
+        }
+        block.setTransactions(transactions);
+        return block;
+    }
+
+    /**
+     * Writes a list of hashes
+     *
+     * @param out    Stream to write to
+     * @param hashes Hashes to write
+     * @throws IOException if the stream fails
+     */
+    static void writeHashes(DataOutputStream out, List<byte[]> hashes) throws IOException {
+        writeVarInt(out, hashes.size());
+        for (byte[] hash : hashes) {
+            writeBytes(out, hash);
+        }
+    }
+
+    /**
+     * Reads a list of hashes
+     *
+     * @param in Stream to read from
+     * @return Hashes
+     * @throws IOException if the stream is malformed
+     */
+    static List<byte[]> readHashes(DataInputStream in) throws IOException {
+        int hashCount = readVarInt(in);
+        List<byte[]> hashes = new ArrayList<>(Math.min(hashCount, 1 << 16));
+        for (int i = 0; i < hashCount; i++) {
+            hashes.add(readBytes(in));
+        }
+        return hashes;
+    }
+
+    /**
+     * Writes ascending transaction indexes as differences to their predecessor
+     *
+     * @param out     Stream to write to
+     * @param indexes Ascending indexes
+     * @throws IOException if the stream fails
+     */
+    static void writeIndexes(DataOutputStream out, List<Integer> indexes) throws IOException {
+        writeVarInt(out, indexes.size());
+        int previous = 0;
+        for (int index : indexes) {
+            writeVarInt(out, index - previous);
+            previous = index;
+        }
+    }
+
+    /**
+     * Reads ascending transaction indexes
+     *
+     * @param in Stream to read from
+     * @return Indexes
+     * @throws IOException if the stream is malformed
+     */
+    static List<Integer> readIndexes(DataInputStream in) throws IOException {
+        int indexCount = readVarInt(in);
+        List<Integer> indexes = new ArrayList<>(Math.min(indexCount, 1 << 16));
+        int index = 0;
+        for (int i = 0; i < indexCount; i++) {
+            index += readVarInt(in);
+            indexes.add(index);
+        }
+        return indexes;
+    }
+
+    /**
+     * Writes a byte Array with its length (null is written as length 0, the length of Arrays is incremented by one)
+     *
+     * @param out   Stream to write to
+     * @param bytes Byte Array to write
+     * @throws IOException if the stream fails
+     */
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a byte Array written by writeBytes
+     *
+     * @param in Stream to read from
+     * @return Byte Array or null
+     * @throws IOException if the stream is malformed
+     */
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new EOFException("Byte Array is longer than the message");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a non negative int with 7 bits per byte (small values need one byte)
+     *
+     * @param out   Stream to write to
+     * @param value Value to write
+     * @throws IOException if the stream fails
+     */
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an int written by writeVarInt
+     *
+     * @param in Stream to read from
+     * @return Value
+     * @throws IOException if the stream is malformed
+     */
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length int");
+    }
+
+    /**
+     * Writes the fields of a message
+     */
+    interface FieldWriter {
+
+        /**
+         * Writes the fields
+         *
+         * @param out Stream to write to
+         * @throws IOException if the stream fails
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,45 @@
+package network;
+
+import models.Transaction;
+
+import java.util.List;
+
+/**
+ * Transactions of a relayed compact block, requested by their index in the block
+ */
+public class BlockTransactions {
+
+    //Hash of the block
+    private final byte[] blockHash;
+    //Indexes of the transactions in the block
+    private final List<Integer> indexes;
+    //Transactions of the indexes (empty for a request)
+    private final List<Transaction> transactions;
+
+    /**
+     * Creates new block transactions
+     *
+     * @param blockHash    Hash of the block
+     * @param indexes      Indexes of the transactions in the block
+     * @param transactions Transactions of the indexes (empty for a request)
+     */
+    public BlockTransactions(byte[] blockHash, List<Integer> indexes, List<Transaction> transactions) {
+        this.blockHash = blockHash;
+        this.indexes = indexes;
+        this.transactions = transactions;
+    }
+
+    //Getter:
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public List<Integer> getIndexes() {
+        return indexes;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+}
@@ -11,9 +11,14 @@ import org.apache.log4j.Logger;
 import org.jgroups.*;
 import threads.MinerListener;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The main blockchain network
@@ -30,6 +35,26 @@ public class BlockchainNetwork extends ReceiverAdapter implements MinerListener
     private View view;
     //Message handler for the channel
     private MessageHandler handler;
+    //Sends binary messages if all members of the view understand them (otherwise JSON)
+    private static volatile boolean binaryEnabled = Boolean.parseBoolean(System.getProperty("network.binary", "true"));
+    //Members that announced that they understand binary messages
+    private final Set<Address> binaryMembers = ConcurrentHashMap.newKeySet();
+    //Synchronizes the chain in chunks when joining (otherwise the whole blockchain is transferred as one state)
+    private static volatile boolean chunkedSync = Boolean.parseBoolean(System.getProperty("network.chunkedSync", "true"));
+    //Synchronizer of the chain
+    private ChainSynchronizer synchronizer;
+    //Relays new blocks with short transaction Ids if all members understand binary messages
+    private static volatile boolean compactBlocks = Boolean.parseBoolean(System.getProperty("network.compactBlocks", "true"));
+    //Rebuilds received compact blocks
+    private CompactBlockRelay compactBlockRelay;
+    //Handles received blocks and transactions in stages off the receive thread (read when the network is created)
+    private static volatile boolean pipelined = Boolean.parseBoolean(System.getProperty("network.pipeline", "true"));
+    //Inbound pipeline (null if disabled)
+    private InboundPipeline pipeline;
+    //Announces new transactions in batches if all members understand binary messages (otherwise one message each)
+    private static volatile boolean batchedGossip = Boolean.parseBoolean(System.getProperty("network.batchedGossip", "true"));
+    //Batched transaction gossip
+    private TransactionGossip gossip;
 
     /**
      * Creates a new blockchain network with network channel etc.
@@ -42,33 +67,188 @@ public class BlockchainNetwork extends ReceiverAdapter implements MinerListener
         System.setProperty("java.net.preferIPv$Stack", "true");
 
         this.channel = new JChannel("src/main/resources/udp.xml");
+        this.synchronizer = new ChainSynchronizer(channel, this::requestState);
+        this.compactBlockRelay = new CompactBlockRelay(channel, this::handleDecoded);
+        this.gossip = new TransactionGossip(channel, this::handleDecoded,
+                txId -> DependencyManager.getBlockchain().getTransactionByHash(txId) != null);
+        this.pipeline = pipelined ? new InboundPipeline(this::decode, handler) : null;
         channel.setReceiver(this);
         channel.setDiscardOwnMessages(true);
         channel.connect("PrivateBlockchain");
-        channel.getState(null, 0);
+        if (chunkedSync) {
+            synchronizer.start(view);
+        } else {
+            requestState();
+        }
+        announceBinaryFormat();
 
         logger.info("BlockchainNetwork: BlockchainNetwork started: " + channel.getAddressAsString());
     }
 
     /**
-     * Receives a message and handles the message -> deserialization of the message
+     * Requests the whole blockchain as state of the channel (legacy synchronization)
+     */
+    private void requestState() {
+        try {
+            channel.getState(null, 0);
+        } catch (Exception e) {
+            logger.error("BlockchainNetwork: Could not receive the state.", e);
+        }
+    }
+
+    /**
+     * Receives a message and handles the message -> deserialization of the message.
+     * With the inbound pipeline the message is only enqueued, except for messages that are handed to the
+     * synchronizer anyway.
      *
      * @param msg Message
      */
     @Override
     public void receive(Message msg) {
         try {
-            String json = new String(msg.getRawBuffer());
-            if (json.contains("\"type\":\"BlockAdapter\"")) {
-                handler.handleBlock(genson.deserialize(json, BlockAdapter.class));
-            } else if (json.contains("\"type\":\"TransactionAdapter\"")) {
-                handler.handleTransaction(genson.deserialize(json, TransactionAdapter.class));
+            if (pipeline != null && !isHandledInline(msg)) {
+                pipeline.submit(msg, isTransaction(msg));
+            } else {
+                Object item = decode(msg);
+                if (item instanceof Block) {
+                    handler.handleBlock(new BlockAdapter((Block) item));
+                } else if (item instanceof Transaction) {
+                    handler.handleTransaction(new TransactionAdapter((Transaction) item));
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Decodes a message, messages that are no block or transaction are handled directly
+     *
+     * @param msg Message
+     * @return Block, transaction or null if the message was handled
+     * @throws Exception Exception if the message is malformed
+     */
+    private Object decode(Message msg) throws Exception {
+        byte[] buffer = msg.getRawBuffer();
+        if (!BinaryCodec.isBinary(buffer, msg.getOffset(), msg.getLength())) {
+            String json = new String(buffer, msg.getOffset(), msg.getLength());
+            if (json.contains("\"type\":\"BlockAdapter\"")) {
+                return genson.deserialize(json, BlockAdapter.class).getBlock();
+            } else if (json.contains("\"type\":\"TransactionAdapter\"")) {
+                return genson.deserialize(json, TransactionAdapter.class).getTransaction();
+            }
+            return null;
+        }
+
+        switch (BinaryCodec.getType(buffer, msg.getOffset())) {
+            case BinaryCodec.TYPE_HELLO:
+                binaryMembers.add(msg.getSrc());
+                break;
+            case BinaryCodec.TYPE_BLOCK:
+                return BinaryCodec.decodeBlock(buffer, msg.getOffset(), msg.getLength());
+            case BinaryCodec.TYPE_TRANSACTION:
+                return BinaryCodec.decodeTransaction(buffer, msg.getOffset(), msg.getLength());
+            case BinaryCodec.TYPE_COMPACT_BLOCK:
+                compactBlockRelay.handleCompactBlock(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_GET_BLOCK_TRANSACTIONS:
+                compactBlockRelay.handleGetBlockTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_BLOCK_TRANSACTIONS:
+                compactBlockRelay.handleBlockTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_INVENTORY:
+                gossip.handleInventory(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_GET_TRANSACTIONS:
+                gossip.handleGetTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_TRANSACTIONS:
+                gossip.handleTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_SYNC_REQUEST:
+                synchronizer.handleRequest(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_SYNC_CHUNK:
+                synchronizer.handleChunk(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_GET_HEADERS:
+                synchronizer.handleHeadersRequest(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_HEADERS:
+                synchronizer.handleHeaders(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_GET_BLOCKS:
+                synchronizer.handleBlocksRequest(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            case BinaryCodec.TYPE_BLOCKS:
+                synchronizer.handleBlocks(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                break;
+            default:
+                logger.warn("BlockchainNetwork: Unknown binary message type.");
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a message is handled on the receive thread (announcements and synchronization messages, which only
+     * hand the work to the synchronizer)
+     *
+     * @param msg Message
+     * @return Boolean if the message bypasses the inbound pipeline
+     * @throws IOException if the message has a newer version
+     */
+    private boolean isHandledInline(Message msg) throws IOException {
+        if (!BinaryCodec.isBinary(msg.getRawBuffer(), msg.getOffset(), msg.getLength())) {
+            return false;
+        }
+        byte type = BinaryCodec.getType(msg.getRawBuffer(), msg.getOffset());
+        return type == BinaryCodec.TYPE_HELLO || (type >= BinaryCodec.TYPE_SYNC_REQUEST && type <= BinaryCodec.TYPE_BLOCKS);
+    }
+
+    /**
+     * Checks if a message is a binary encoded transaction (it may be dropped if the inbound pipeline is full)
+     *
+     * @param msg Message
+     * @return Boolean if the message is a binary transaction
+     * @throws IOException if the message has a newer version
+     */
+    private boolean isTransaction(Message msg) throws IOException {
+        return BinaryCodec.isBinary(msg.getRawBuffer(), msg.getOffset(), msg.getLength())
+                && BinaryCodec.getType(msg.getRawBuffer(), msg.getOffset()) == BinaryCodec.TYPE_TRANSACTION;
+    }
+
+    /**
+     * Hands a block or transaction that was decoded from another message (a rebuilt compact block or a gossiped
+     * transaction) to the inbound pipeline (or directly to the handler without pipeline)
+     *
+     * @param item Block or transaction
+     */
+    private void handleDecoded(Object item) {
+        if (pipeline == null) {
+            if (item instanceof Block) {
+                handler.handleBlock(new BlockAdapter((Block) item));
+            } else {
+                handler.handleTransaction(new TransactionAdapter((Transaction) item));
+            }
+            return;
+        }
+        try {
+            pipeline.submitDecoded(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the metrics of the inbound pipeline
+     *
+     * @return Metrics by name (empty without pipeline)
+     */
+    public Map<String, Long> getPipelineMetrics() {
+        return (pipeline == null) ? new LinkedHashMap<>() : pipeline.getMetrics();
+    }
+
     /**
      * Registering a new view to the network
      *
@@ -88,6 +268,137 @@ public class BlockchainNetwork extends ReceiverAdapter implements MinerListener
             exMembers.forEach(System.out::println);
         }
         this.view = view;
+
+        //Announce the binary format to the (new) members, the members that left are forgotten
+        binaryMembers.retainAll(view.getMembers());
+        if (synchronizer != null) {
+            synchronizer.viewAccepted(view);
+        }
+        if (channel != null && channel.isConnected()) {
+            announceBinaryFormat();
+        }
+    }
+
+    /**
+     * Announces to all members that this node understands binary messages
+     */
+    private void announceBinaryFormat() {
+        if (binaryEnabled) {
+            try {
+                channel.send(new Message(null, BinaryCodec.encodeHello()));
+            } catch (Exception e) {
+                logger.error("BlockchainNetwork: Could not announce the binary format.", e);
+            }
+        }
+    }
+
+    /**
+     * Checks if messages are sent binary encoded: the binary format must be enabled and announced by every other member
+     *
+     * @return Boolean if messages are sent binary encoded
+     */
+    private boolean sendsBinary() {
+        View currentView = this.view;
+        if (!binaryEnabled || currentView == null) {
+            return false;
+        }
+        for (Address member : currentView.getMembers()) {
+            if (!member.equals(channel.getAddress()) && !binaryMembers.contains(member)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the chain is synchronized in chunks when joining
+     *
+     * @return Boolean if the chunked synchronization is enabled
+     */
+    public static boolean isChunkedSync() {
+        return chunkedSync;
+    }
+
+    /**
+     * Enables or disables the chunked synchronization (disabled nodes receive the whole blockchain as one state)
+     *
+     * @param chunkedSync Boolean if the chunked synchronization is enabled
+     */
+    public static void setChunkedSync(boolean chunkedSync) {
+        BlockchainNetwork.chunkedSync = chunkedSync;
+    }
+
+    /**
+     * Returns if received blocks and transactions are handled by the inbound pipeline
+     *
+     * @return Boolean if the inbound pipeline is enabled
+     */
+    public static boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Enables or disables the inbound pipeline for networks created afterwards (disabled networks handle the
+     * messages on the receive thread)
+     *
+     * @param pipelined Boolean if the inbound pipeline is enabled
+     */
+    public static void setPipelined(boolean pipelined) {
+        BlockchainNetwork.pipelined = pipelined;
+    }
+
+    /**
+     * Returns if new transactions are announced in batches
+     *
+     * @return Boolean if the batched gossip is enabled
+     */
+    public static boolean isBatchedGossip() {
+        return batchedGossip;
+    }
+
+    /**
+     * Enables or disables the batched gossip (disabled nodes send every transaction in its own message)
+     *
+     * @param batchedGossip Boolean if the batched gossip is enabled
+     */
+    public static void setBatchedGossip(boolean batchedGossip) {
+        BlockchainNetwork.batchedGossip = batchedGossip;
+    }
+
+    /**
+     * Returns if new blocks are relayed as compact blocks
+     *
+     * @return Boolean if the compact block relay is enabled
+     */
+    public static boolean isCompactBlocks() {
+        return compactBlocks;
+    }
+
+    /**
+     * Enables or disables the compact block relay (disabled nodes send new blocks with all transactions)
+     *
+     * @param compactBlocks Boolean if the compact block relay is enabled
+     */
+    public static void setCompactBlocks(boolean compactBlocks) {
+        BlockchainNetwork.compactBlocks = compactBlocks;
+    }
+
+    /**
+     * Returns if the binary format is enabled
+     *
+     * @return Boolean if the binary format is enabled
+     */
+    public static boolean isBinaryEnabled() {
+        return binaryEnabled;
+    }
+
+    /**
+     * Enables or disables the binary format (disabled nodes send and announce JSON only, but still read binary)
+     *
+     * @param binaryEnabled Boolean if the binary format is enabled
+     */
+    public static void setBinaryEnabled(boolean binaryEnabled) {
+        BlockchainNetwork.binaryEnabled = binaryEnabled;
     }
 
     /**
@@ -114,13 +425,18 @@ public class BlockchainNetwork extends ReceiverAdapter implements MinerListener
     }
 
     /**
-     * Sends a transaction
+     * Sends a transaction (announced in the next inventory with the batched gossip)
      *
      * @param transaction Transaction to send
      * @throws Exception Exception if the Transaction couldn't be sent
      */
     public void sendTransaction(Transaction transaction) throws Exception {
-        Message message = new Message(null, transactionToJSON(transaction));
+        if (batchedGossip && sendsBinary()) {
+            gossip.announce(transaction);
+            return;
+        }
+        byte[] payload = sendsBinary() ? BinaryCodec.encodeTransaction(transaction) : transactionToJSON(transaction);
+        Message message = new Message(null, payload);
         channel.send(message);
     }
 
@@ -141,7 +457,15 @@ public class BlockchainNetwork extends ReceiverAdapter implements MinerListener
      * @throws Exception Exception if the sending went wrong
      */
     public void sendBlock(Block block) throws Exception {
-        Message message = new Message(null, blockToJSON(block));
+        byte[] payload;
+        if (!sendsBinary()) {
+            payload = blockToJSON(block);
+        } else if (compactBlocks) {
+            payload = BinaryCodec.encodeCompactBlock(CompactBlock.of(block));
+        } else {
+            payload = BinaryCodec.encodeBlock(block);
+        }
+        Message message = new Message(null, payload);
         channel.send(message);
     }
 
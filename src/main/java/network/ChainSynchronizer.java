@@ -0,0 +1,756 @@
+package network;
+
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import models.BlockHeader;
+import org.apache.log4j.Logger;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.View;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Synchronizes the main chain of a joining node in chunks instead of one state transfer of the whole blockchain.
+ * The joining node requests the blocks from its current height on, applies every chunk as soon as it arrives and
+ * requests the next one. If a member does not answer in time or leaves, the request is repeated from the current
+ * height to another member, so an interrupted synchronization resumes where it stopped.
+ * <p>
+ * In the headers-first mode the joining node first downloads the headers of the main chain and checks their linkage
+ * and proof of work. Afterwards it requests the block bodies in small batches from all members at the same time,
+ * checks every body against the merkle root of its header and adds the blocks in chain order. The sequential part
+ * of the synchronization therefore depends on the number of headers and not on the size of the blocks.
+ * <p>
+ * Requests and chunks are handled one at a time on an own thread, never on the receive thread of the channel.
+ */
+public class ChainSynchronizer {
+
+    //Logger to show some additional information
+    private static Logger logger = Logger.getLogger(ChainSynchronizer.class);
+    //Maximum number of blocks per chunk
+    public static final int CHUNK_BLOCKS = Integer.getInteger("sync.chunkBlocks", 8);
+    //Maximum size of the blocks of a chunk in bytes (a chunk contains at least one block)
+    public static final int CHUNK_BYTES = Integer.getInteger("sync.chunkBytes", 4 * 1024 * 1024);
+    //Time without a chunk after that the request is repeated to another member
+    public static final long TIMEOUT_MILLIS = Long.getLong("sync.timeout", 10000L);
+    //Number of requests without progress after that the legacy state transfer is used
+    public static final int MAX_ATTEMPTS = Integer.getInteger("sync.maxAttempts", 5);
+    //Maximum number of headers per header chunk
+    public static final int HEADER_CHUNK = Integer.getInteger("sync.headerChunk", 2000);
+    //Maximum number of blocks per block request in the headers-first mode
+    public static final int BODY_BATCH = Integer.getInteger("sync.bodyBatch", 4);
+    //Maximum number of requested or downloaded but not yet added blocks in the headers-first mode
+    public static final int BODY_WINDOW = Integer.getInteger("sync.bodyWindow", 32);
+
+    //Synchronize the headers first and download the bodies from all members
+    private static volatile boolean headersFirst = Boolean.parseBoolean(System.getProperty("sync.headersFirst", "true"));
+
+    //Communication channel
+    private final JChannel channel;
+    //Legacy state transfer of the whole blockchain (used if no member answers the chunked synchronization)
+    private final Runnable legacyStateTransfer;
+    //Thread that handles requests and chunks in order
+    private final ScheduledExecutorService executor;
+    //Time without progress after that the request is repeated to another member
+    private final long timeoutMillis;
+    //Current view of the channel
+    private volatile View view;
+    //Member the chunks or headers are requested from (null if the node is not synchronizing)
+    private volatile Address provider;
+    //Time of the last request or progress
+    private volatile long lastProgress;
+    //Requests without progress
+    private int attempts;
+    //The genesis block of the network was adopted (or the own chain already contains more than the genesis block)
+    private boolean genesisSynchronized;
+    //Current phase of the synchronization
+    private volatile Phase phase = Phase.IDLE;
+    //Validated headers that are not yet part of the own chain
+    private List<BlockHeader> headers = new ArrayList<>();
+    //Height of the first validated header
+    private int headerBase;
+    //Next height whose body is requested
+    private int nextBodyHeight;
+    //Open body requests per height
+    private Map<Integer, BodyRequest> bodyRequests = new HashMap<>();
+    //Heights of the open body requests per block hash
+    private Map<String, Integer> bodyHeights = new HashMap<>();
+    //Downloaded and checked blocks that wait for their predecessors
+    private TreeMap<Integer, Block> downloadedBlocks = new TreeMap<>();
+    //Counter to spread the body requests over the members
+    private int nextMember;
+
+    /**
+     * Creates a new chain synchronizer
+     *
+     * @param channel             Communication channel
+     * @param legacyStateTransfer Legacy state transfer of the whole blockchain
+     */
+    public ChainSynchronizer(JChannel channel, Runnable legacyStateTransfer) {
+        this(channel, legacyStateTransfer, TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a new chain synchronizer with the given timeout
+     *
+     * @param channel             Communication channel
+     * @param legacyStateTransfer Legacy state transfer of the whole blockchain
+     * @param timeoutMillis       Time without progress after that the request is repeated to another member
+     */
+    ChainSynchronizer(JChannel channel, Runnable legacyStateTransfer, long timeoutMillis) {
+        this.channel = channel;
+        this.legacyStateTransfer = legacyStateTransfer;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chain-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::checkTimeout, timeoutMillis, timeoutMillis / 2, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the synchronization of the main chain with the other members
+     *
+     * @param view Current view of the channel
+     */
+    public void start(View view) {
+        this.view = view;
+        executor.execute(() -> {
+            Blockchain blockchain = DependencyManager.getBlockchain();
+            genesisSynchronized = blockchain.size() > 1 || blockchain.getChainCount() > 1;
+            attempts = 0;
+            if (headersFirst) {
+                startHeaders();
+            } else {
+                phase = Phase.CHUNKS;
+                requestNextChunk();
+            }
+        });
+    }
+
+    /**
+     * Registers a new view, a request to a member that left is repeated to another member
+     *
+     * @param view New view
+     */
+    public void viewAccepted(View view) {
+        this.view = view;
+        executor.execute(() -> {
+            if (phase == Phase.BODIES) {
+                resendBodies(request -> !view.containsMember(request.member));
+            } else if (provider != null && !view.containsMember(provider)) {
+                retry();
+            }
+        });
+    }
+
+    /**
+     * Returns if the node is synchronizing its chain
+     *
+     * @return Boolean if the node is synchronizing
+     */
+    public boolean isSynchronizing() {
+        return phase != Phase.IDLE;
+    }
+
+    /**
+     * Answers a sync request of another member with the next chunk of the own main chain
+     *
+     * @param source  Requesting member
+     * @param message Raw buffer of the request
+     * @param offset  Offset of the request
+     * @param length  Length of the request
+     */
+    public void handleRequest(Address source, byte[] message, int offset, int length) {
+        executor.execute(() -> {
+            try {
+                int fromHeight = BinaryCodec.decodeSyncRequest(message, offset, length);
+                channel.send(new Message(source, BinaryCodec.encodeSyncChunk(createChunk(fromHeight))));
+            } catch (Exception e) {
+                logger.error("ChainSynchronizer: Could not answer sync request.", e);
+            }
+        });
+    }
+
+    /**
+     * Creates the chunk of the own main chain starting at the given height
+     *
+     * @param fromHeight Height of the first block
+     * @return Chunk (without blocks if the chain is not higher than the requested height)
+     */
+    SyncChunk createChunk(int fromHeight) {
+        //A snapshot stays consistent if the main chain switches meanwhile
+        List<Block> chain = DependencyManager.getBlockchain().getChain().getChain();
+        int chainHeight = chain.size();
+        List<Block> blocks = new ArrayList<>();
+        long bytes = 0;
+
+        for (int height = fromHeight; height < chainHeight && blocks.size() < CHUNK_BLOCKS && bytes < CHUNK_BYTES; height++) {
+            Block block = chain.get(height);
+            blocks.add(block);
+            bytes += block.getBlockSize();
+        }
+        return new SyncChunk(fromHeight, chainHeight, blocks);
+    }
+
+    /**
+     * Answers a header request of another member with the next headers of the own main chain
+     *
+     * @param source  Requesting member
+     * @param message Raw buffer of the request
+     * @param offset  Offset of the request
+     * @param length  Length of the request
+     */
+    public void handleHeadersRequest(Address source, byte[] message, int offset, int length) {
+        executor.execute(() -> {
+            try {
+                int fromHeight = BinaryCodec.decodeGetHeaders(message, offset, length);
+                channel.send(new Message(source, BinaryCodec.encodeHeaders(createHeaderChunk(fromHeight))));
+            } catch (Exception e) {
+                logger.error("ChainSynchronizer: Could not answer header request.", e);
+            }
+        });
+    }
+
+    /**
+     * Creates the header chunk of the own main chain starting at the given height
+     *
+     * @param fromHeight Height of the first header
+     * @return Chunk (without headers if the chain is not higher than the requested height)
+     */
+    HeaderChunk createHeaderChunk(int fromHeight) {
+        List<Block> chain = DependencyManager.getBlockchain().getChain().getChain();
+        int chainHeight = chain.size();
+        List<BlockHeader> chunkHeaders = new ArrayList<>();
+
+        for (int height = fromHeight; height < chainHeight && chunkHeaders.size() < HEADER_CHUNK; height++) {
+            chunkHeaders.add(chain.get(height).getBlockHeader());
+        }
+        return new HeaderChunk(fromHeight, chainHeight, chunkHeaders);
+    }
+
+    /**
+     * Answers a block request of another member with the requested blocks that are part of the own blockchain
+     *
+     * @param source  Requesting member
+     * @param message Raw buffer of the request
+     * @param offset  Offset of the request
+     * @param length  Length of the request
+     */
+    public void handleBlocksRequest(Address source, byte[] message, int offset, int length) {
+        executor.execute(() -> {
+            try {
+                Blockchain blockchain = DependencyManager.getBlockchain();
+                List<Block> blocks = new ArrayList<>();
+                for (byte[] hash : BinaryCodec.decodeGetBlocks(message, offset, length)) {
+                    Block block = blockchain.getBlockByHash(hash);
+                    if (block != null) {
+                        blocks.add(block);
+                    }
+                }
+                channel.send(new Message(source, BinaryCodec.encodeBlocks(blocks)));
+            } catch (Exception e) {
+                logger.error("ChainSynchronizer: Could not answer block request.", e);
+            }
+        });
+    }
+
+    /**
+     * Applies a received chunk and requests the next one
+     *
+     * @param source  Member that sent the chunk
+     * @param message Raw buffer of the chunk
+     * @param offset  Offset of the chunk
+     * @param length  Length of the chunk
+     */
+    public void handleChunk(Address source, byte[] message, int offset, int length) {
+        executor.execute(() -> {
+            if (phase != Phase.CHUNKS || !source.equals(provider)) {
+                return;
+            }
+            try {
+                applyChunk(BinaryCodec.decodeSyncChunk(message, offset, length));
+            } catch (Exception e) {
+                logger.error("ChainSynchronizer: Could not apply sync chunk.", e);
+                retry();
+            }
+        });
+    }
+
+    /**
+     * Adds the blocks of a chunk to the blockchain
+     *
+     * @param chunk Received chunk
+     */
+    private void applyChunk(SyncChunk chunk) {
+        Blockchain blockchain = DependencyManager.getBlockchain();
+        int heightBefore = blockchain.size();
+
+        //Answer to an old request
+        if (chunk.getFromHeight() != requestHeight(blockchain)) {
+            return;
+        }
+
+        boolean genesisAdopted = false;
+        for (int i = 0; i < chunk.getBlocks().size(); i++) {
+            Block block = chunk.getBlocks().get(i);
+            if (chunk.getFromHeight() + i == 0) {
+                genesisAdopted = blockchain.adoptGenesisHeader(block.getBlockHeader());
+                if (!genesisAdopted && !Arrays.equals(blockchain.getGenesisBlock().getBlockHash(), block.getBlockHash())) {
+                    logger.warn("ChainSynchronizer: Genesis block could not be adopted.");
+                    retry();
+                    return;
+                }
+                genesisSynchronized = true;
+            } else {
+                blockchain.addBlock(block);
+            }
+        }
+        DependencyManager.getMiner().cancelBlock();
+
+        if (blockchain.size() >= chunk.getChainHeight()) {
+            finish();
+        } else if (blockchain.size() > heightBefore || genesisAdopted) {
+            attempts = 0;
+            requestNextChunk();
+        } else {
+            logger.warn("ChainSynchronizer: Sync chunk could not be applied.");
+            retry();
+        }
+    }
+
+    /**
+     * Starts (or continues after all bodies were added) the download of the headers
+     */
+    private void startHeaders() {
+        phase = Phase.HEADERS;
+        headers.clear();
+        headerBase = requestHeight(DependencyManager.getBlockchain());
+        requestHeaders();
+    }
+
+    /**
+     * Requests the next headers from a member of the view
+     */
+    private void requestHeaders() {
+        Address member = selectProvider();
+        if (member == null) {
+            reset();
+            return;
+        }
+        provider = member;
+        lastProgress = System.currentTimeMillis();
+        try {
+            channel.send(new Message(member, BinaryCodec.encodeGetHeaders(headerBase + headers.size())));
+        } catch (Exception e) {
+            logger.error("ChainSynchronizer: Could not send header request.", e);
+        }
+    }
+
+    /**
+     * Validates the headers of a received header chunk and requests the next headers or the bodies
+     *
+     * @param source  Member that sent the chunk
+     * @param message Raw buffer of the chunk
+     * @param offset  Offset of the chunk
+     * @param length  Length of the chunk
+     */
+    public void handleHeaders(Address source, byte[] message, int offset, int length) {
+        executor.execute(() -> {
+            if (phase != Phase.HEADERS || !source.equals(provider)) {
+                return;
+            }
+            try {
+                applyHeaders(BinaryCodec.decodeHeaders(message, offset, length));
+            } catch (Exception e) {
+                logger.error("ChainSynchronizer: Could not apply header chunk.", e);
+                retry();
+            }
+        });
+    }
+
+    /**
+     * Adds the headers of a chunk to the validated headers
+     *
+     * @param chunk Received chunk
+     */
+    private void applyHeaders(HeaderChunk chunk) {
+        Blockchain blockchain = DependencyManager.getBlockchain();
+
+        //Answer to an old request
+        if (chunk.getFromHeight() != headerBase + headers.size()) {
+            return;
+        }
+
+        for (int i = 0; i < chunk.getHeaders().size(); i++) {
+            BlockHeader header = chunk.getHeaders().get(i);
+            if (chunk.getFromHeight() + i == 0) {
+                if (!blockchain.adoptGenesisHeader(header) && !Arrays.equals(blockchain.getGenesisBlock().getBlockHash(), header.asHash())) {
+                    logger.warn("ChainSynchronizer: Genesis header could not be adopted.");
+                    retry();
+                    return;
+                }
+                genesisSynchronized = true;
+                headerBase = 1;
+            } else if (isValidSuccessor(blockchain, header)) {
+                headers.add(header);
+            } else {
+                logger.warn("ChainSynchronizer: Received invalid header at height " + (chunk.getFromHeight() + i) + ".");
+                retry();
+                return;
+            }
+        }
+        attempts = 0;
+
+        if (!chunk.getHeaders().isEmpty() && headerBase + headers.size() < chunk.getChainHeight()) {
+            requestHeaders();
+        } else if (headers.isEmpty()) {
+            DependencyManager.getMiner().cancelBlock();
+            finish();
+        } else {
+            logger.info("ChainSynchronizer: " + headers.size() + " headers validated, downloading the blocks.");
+            startBodies();
+        }
+    }
+
+    /**
+     * Checks if a header links to the last validated header (or the own latest block) and fulfills the difficulty
+     *
+     * @param blockchain Own blockchain
+     * @param header     Header to check
+     * @return Boolean if the header is a valid successor
+     */
+    private boolean isValidSuccessor(Blockchain blockchain, BlockHeader header) {
+        byte[] previousHash = headers.isEmpty()
+                ? blockchain.getChain().get(headerBase - 1).getBlockHash()
+                : headers.get(headers.size() - 1).asHash();
+        return Arrays.equals(previousHash, header.getPreviousHash()) && blockchain.fulfillsDifficulty(header.asHash());
+    }
+
+    /**
+     * Starts the download of the bodies of the validated headers
+     */
+    private void startBodies() {
+        phase = Phase.BODIES;
+        nextBodyHeight = headerBase;
+        bodyRequests.clear();
+        bodyHeights.clear();
+        downloadedBlocks.clear();
+        requestBodies();
+    }
+
+    /**
+     * Requests bodies from the members until the window is full, each batch from the next member
+     */
+    private void requestBodies() {
+        int headerEnd = headerBase + headers.size();
+        while (nextBodyHeight < headerEnd && bodyRequests.size() + downloadedBlocks.size() < BODY_WINDOW) {
+            List<Integer> heights = new ArrayList<>();
+            while (heights.size() < BODY_BATCH && nextBodyHeight < headerEnd
+                    && bodyRequests.size() + downloadedBlocks.size() + heights.size() < BODY_WINDOW) {
+                heights.add(nextBodyHeight++);
+            }
+            if (!sendBodyRequest(heights)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Requests the bodies of the given heights from the next member
+     *
+     * @param heights Heights of the requested bodies
+     * @return Boolean if a member was available
+     */
+    private boolean sendBodyRequest(List<Integer> heights) {
+        List<Address> members = otherMembers();
+        if (members.isEmpty()) {
+            reset();
+            return false;
+        }
+        Address member = members.get(nextMember++ % members.size());
+        long now = System.currentTimeMillis();
+        List<byte[]> hashes = new ArrayList<>();
+
+        for (int height : heights) {
+            byte[] hash = headers.get(height - headerBase).asHash();
+            hashes.add(hash);
+            bodyRequests.put(height, new BodyRequest(member, now));
+            bodyHeights.put(SHA3Util.digestToHex(hash), height);
+        }
+        try {
+            channel.send(new Message(member, BinaryCodec.encodeGetBlocks(hashes)));
+        } catch (Exception e) {
+            logger.error("ChainSynchronizer: Could not send block request.", e);
+        }
+        return true;
+    }
+
+    /**
+     * Checks received blocks against their headers and adds the blocks that are next in chain order
+     *
+     * @param source  Member that sent the blocks
+     * @param message Raw buffer of the blocks
+     * @param offset  Offset of the blocks
+     * @param length  Length of the blocks
+     */
+    public void handleBlocks(Address source, byte[] message, int offset, int length) {
+        executor.execute(() -> {
+            if (phase != Phase.BODIES) {
+                return;
+            }
+            try {
+                for (Block block : BinaryCodec.decodeBlocks(message, offset, length)) {
+                    acceptBody(block);
+                }
+                applyBodies();
+            } catch (Exception e) {
+                logger.error("ChainSynchronizer: Could not apply blocks.", e);
+            }
+        });
+    }
+
+    /**
+     * Stores a requested block if its transactions match the merkle root of its header
+     *
+     * @param block Received block
+     */
+    private void acceptBody(Block block) {
+        String hash = SHA3Util.digestToHex(block.getBlockHash());
+        Integer height = bodyHeights.get(hash);
+        if (height == null) {
+            return;
+        }
+
+        //The block hash covers the header, so only the transactions have to be checked
+        if (!block.hasValidMerkleRoot()) {
+            logger.warn("ChainSynchronizer: Received block with invalid transactions at height " + height + ".");
+            return;
+        }
+        bodyHeights.remove(hash);
+        bodyRequests.remove(height);
+        downloadedBlocks.put(height, block);
+    }
+
+    /**
+     * Adds the downloaded blocks in chain order and requests further bodies or the next headers
+     */
+    private void applyBodies() {
+        Blockchain blockchain = DependencyManager.getBlockchain();
+        boolean added = false;
+
+        while (!downloadedBlocks.isEmpty() && downloadedBlocks.firstKey() == blockchain.size()) {
+            Block block = downloadedBlocks.pollFirstEntry().getValue();
+            blockchain.addBlock(block);
+            if (blockchain.getBlockByHash(block.getBlockHash()) == null) {
+                logger.warn("ChainSynchronizer: Downloaded block was rejected, synchronizing in chunks.");
+                reset();
+                phase = Phase.CHUNKS;
+                requestNextChunk();
+                return;
+            }
+            added = true;
+        }
+        if (added) {
+            DependencyManager.getMiner().cancelBlock();
+            attempts = 0;
+            lastProgress = System.currentTimeMillis();
+        }
+
+        if (blockchain.size() >= headerBase + headers.size()) {
+            //Blocks mined in the meantime are fetched with the next header request
+            startHeaders();
+        } else {
+            requestBodies();
+        }
+    }
+
+    /**
+     * Requests open bodies again from other members
+     *
+     * @param condition Condition for the requests that are repeated
+     */
+    private void resendBodies(Predicate<BodyRequest> condition) {
+        List<Integer> heights = new ArrayList<>();
+        Iterator<Map.Entry<Integer, BodyRequest>> iterator = bodyRequests.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, BodyRequest> entry = iterator.next();
+            if (condition.test(entry.getValue())) {
+                heights.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+
+        for (int i = 0; i < heights.size(); i += BODY_BATCH) {
+            if (!sendBodyRequest(heights.subList(i, Math.min(i + BODY_BATCH, heights.size())))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the height from that on the blocks are requested (0 as long as the genesis block is not adopted)
+     *
+     * @param blockchain Own blockchain
+     * @return Height of the first requested block
+     */
+    private int requestHeight(Blockchain blockchain) {
+        return genesisSynchronized ? blockchain.size() : 0;
+    }
+
+    /**
+     * Requests the next chunk from a member of the view
+     */
+    private void requestNextChunk() {
+        Address member = selectProvider();
+        if (member == null) {
+            reset();
+            return;
+        }
+        provider = member;
+        lastProgress = System.currentTimeMillis();
+        try {
+            channel.send(new Message(member, BinaryCodec.encodeSyncRequest(requestHeight(DependencyManager.getBlockchain()))));
+        } catch (Exception e) {
+            logger.error("ChainSynchronizer: Could not send sync request.", e);
+        }
+    }
+
+    /**
+     * Repeats the current request to another member or falls back to the legacy state transfer
+     */
+    private void retry() {
+        if (phase == Phase.IDLE) {
+            return;
+        }
+        attempts++;
+        if (attempts >= MAX_ATTEMPTS) {
+            logger.warn("ChainSynchronizer: No member answered, falling back to the state transfer.");
+            reset();
+            legacyStateTransfer.run();
+        } else if (phase == Phase.HEADERS) {
+            requestHeaders();
+        } else if (phase == Phase.BODIES) {
+            long deadline = System.currentTimeMillis() - timeoutMillis;
+            resendBodies(request -> request.sentAt < deadline);
+        } else {
+            requestNextChunk();
+        }
+    }
+
+    /**
+     * Repeats the requests that were not answered in time
+     */
+    private void checkTimeout() {
+        if (phase != Phase.IDLE && System.currentTimeMillis() - lastProgress > timeoutMillis) {
+            logger.warn("ChainSynchronizer: Sync request timed out.");
+            retry();
+        }
+    }
+
+    /**
+     * Ends the synchronization
+     */
+    private void finish() {
+        logger.info("ChainSynchronizer: Chain synchronized at height " + DependencyManager.getBlockchain().size() + ".");
+        reset();
+    }
+
+    /**
+     * Drops the state of the current synchronization
+     */
+    private void reset() {
+        phase = Phase.IDLE;
+        provider = null;
+        headers.clear();
+        bodyRequests.clear();
+        bodyHeights.clear();
+        downloadedBlocks.clear();
+    }
+
+    /**
+     * Selects the member to request the chunks from (the coordinator first, other members on retries)
+     *
+     * @return Member or null if this node is alone
+     */
+    private Address selectProvider() {
+        List<Address> members = otherMembers();
+        return members.isEmpty() ? null : members.get(attempts % members.size());
+    }
+
+    /**
+     * Returns the members of the current view without this node
+     *
+     * @return List of the other members
+     */
+    private List<Address> otherMembers() {
+        View currentView = view;
+        if (currentView == null) {
+            return new ArrayList<>();
+        }
+        List<Address> members = new ArrayList<>(currentView.getMembers());
+        members.remove(channel.getAddress());
+        return members;
+    }
+
+    /**
+     * Returns if the headers are synchronized before the blocks
+     *
+     * @return Boolean if the headers-first mode is enabled
+     */
+    public static boolean isHeadersFirst() {
+        return headersFirst;
+    }
+
+    /**
+     * Enables or disables the headers-first mode (disabled nodes request the blocks in chunks from one member)
+     *
+     * @param headersFirst Boolean if the headers-first mode is enabled
+     */
+    public static void setHeadersFirst(boolean headersFirst) {
+        ChainSynchronizer.headersFirst = headersFirst;
+    }
+
+    /**
+     * Phases of a synchronization
+     */
+    private enum Phase {
+        IDLE, CHUNKS, HEADERS, BODIES
+    }
+
+    /**
+     * Open request for the body of a block
+     */
+    private static class BodyRequest {
+
+        //Member the body was requested from
+        private final Address member;
+        //Time of the request
+        private final long sentAt;
+
+        /**
+         * Creates a new body request
+         *
+         * @param member Member the body was requested from
+         * @param sentAt Time of the request
+         */
+        private BodyRequest(Address member, long sentAt) {
+            this.member = member;
+            this.sentAt = sentAt;
+        }
+    }
+}
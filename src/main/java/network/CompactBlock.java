@@ -0,0 +1,99 @@
+package network;
+
+import models.Block;
+import models.Transaction;
+import org.bouncycastle.crypto.macs.SipHash;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Block that is relayed with short transaction Ids instead of its transactions.
+ * The receivers know most of the transactions from their pending transactions and rebuild the block from them.
+ * A short Id consists of the lowest 6 bytes of the SipHash-2-4 of the transaction Id, keyed with the block hash, so
+ * the short Ids of the same transaction differ from block to block.
+ */
+public class CompactBlock {
+
+    //Size of a short transaction Id in bytes
+    public static final int SHORT_ID_SIZE = 6;
+    //Mask of the bits of a short transaction Id
+    private static final long SHORT_ID_MASK = (1L << (SHORT_ID_SIZE * 8)) - 1;
+
+    //Block without transactions (header, coinbase and size information)
+    private final Block block;
+    //Short Ids of the transactions in block order
+    private final long[] shortIds;
+
+    /**
+     * Creates a new compact block
+     *
+     * @param block    Block without transactions
+     * @param shortIds Short Ids of the transactions in block order
+     */
+    public CompactBlock(Block block, long[] shortIds) {
+        this.block = block;
+        this.shortIds = shortIds;
+    }
+
+    /**
+     * Creates the compact form of a block
+     *
+     * @param block Block with all its transactions
+     * @return Compact block
+     */
+    public static CompactBlock of(Block block) {
+        Block shell = new Block();
+        shell.setMagicNumber(block.getMagicNumber());
+        shell.setBlockSize(block.getBlockSize());
+        shell.setTransactionCount(block.getTransactionCount());
+        shell.setBlockNumber(block.getBlockNumber());
+        shell.setCoinbase(block.getCoinbase());
+        shell.setBlockHeader(block.getBlockHeader());
+        shell.setTransactions(new ArrayList<>());
+
+        SipHash hasher = createHasher(block.getBlockHash());
+        List<Transaction> transactions = block.getTransactions();
+        long[] shortIds = new long[transactions.size()];
+        for (int i = 0; i < shortIds.length; i++) {
+            shortIds[i] = shortId(hasher, transactions.get(i).getTxId());
+        }
+        return new CompactBlock(shell, shortIds);
+    }
+
+    /**
+     * Creates the hasher for the short Ids of a block
+     *
+     * @param blockHash Hash of the block
+     * @return Keyed SipHash
+     */
+    public static SipHash createHasher(byte[] blockHash) {
+        SipHash hasher = new SipHash();
+        hasher.init(new KeyParameter(Arrays.copyOf(blockHash, 16)));
+        return hasher;
+    }
+
+    /**
+     * Calculates the short Id of a transaction
+     *
+     * @param hasher Hasher of the block
+     * @param txId   Id of the transaction
+     * @return Short Id
+     */
+    public static long shortId(SipHash hasher, byte[] txId) {
+        hasher.update(txId, 0, txId.length);
+        return hasher.doFinal() & SHORT_ID_MASK;
+    }
+
+    //Getter:
+
+    public Block getBlock() {
+        return block;
+    }
+
+    public long[] getShortIds() {
+        return shortIds;
+    }
+}
@@ -0,0 +1,258 @@
+package network;
+
+import logic.DependencyManager;
+import models.Block;
+import models.Transaction;
+import org.apache.log4j.Logger;
+import org.bouncycastle.crypto.macs.SipHash;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Relays blocks as compact blocks and rebuilds received compact blocks from the pending transactions.
+ * Transactions that are not pending are requested by their index from the sender of the compact block. If the
+ * rebuilt transactions do not match the merkle root of the header (a short Id collision), all transactions of the
+ * block are requested.
+ */
+public class CompactBlockRelay {
+
+    //Logger to show some additional information
+    private static Logger logger = Logger.getLogger(CompactBlockRelay.class);
+    //Maximum number of compact blocks that wait for missing transactions
+    public static final int MAX_PARTIAL_BLOCKS = Integer.getInteger("network.maxPartialBlocks", 16);
+
+    //Communication channel
+    private final JChannel channel;
+    //Receives the rebuilt blocks
+    private final Consumer<Block> blockConsumer;
+    //Compact blocks that wait for missing transactions per block hash (oldest first)
+    private final Map<String, PartialBlock> partialBlocks = new LinkedHashMap<>();
+
+    /**
+     * Creates a new compact block relay
+     *
+     * @param channel       Communication channel
+     * @param blockConsumer Receives the rebuilt blocks
+     */
+    public CompactBlockRelay(JChannel channel, Consumer<Block> blockConsumer) {
+        this.channel = channel;
+        this.blockConsumer = blockConsumer;
+    }
+
+    /**
+     * Rebuilds a received compact block from the pending transactions and requests the missing transactions
+     *
+     * @param source  Member that sent the compact block
+     * @param message Raw buffer of the compact block
+     * @param offset  Offset of the compact block
+     * @param length  Length of the compact block
+     * @throws Exception Exception if the message is malformed or the request could not be sent
+     */
+    public void handleCompactBlock(Address source, byte[] message, int offset, int length) throws Exception {
+        CompactBlock compactBlock = BinaryCodec.decodeCompactBlock(message, offset, length);
+        Block block = compactBlock.getBlock();
+        if (DependencyManager.getBlockchain().getBlockByHash(block.getBlockHash()) != null) {
+            return;
+        }
+
+        long[] shortIds = compactBlock.getShortIds();
+        Map<Long, Transaction> pendingTransactions = indexPendingTransactions(CompactBlock.createHasher(block.getBlockHash()));
+        Transaction[] transactions = new Transaction[shortIds.length];
+        List<Integer> missing = new ArrayList<>();
+
+        for (int i = 0; i < shortIds.length; i++) {
+            transactions[i] = pendingTransactions.get(shortIds[i]);
+            if (transactions[i] == null) {
+                missing.add(i);
+            }
+        }
+        logger.info("CompactBlockRelay: Compact block received, " + missing.size() + " of " + shortIds.length + " transactions missing.");
+
+        PartialBlock partialBlock = new PartialBlock(block, transactions);
+        if (missing.isEmpty()) {
+            complete(source, partialBlock);
+        } else {
+            request(source, partialBlock, missing);
+        }
+    }
+
+    /**
+     * Indexes the pending transactions by their short Ids (transactions with colliding short Ids are left out)
+     *
+     * @param hasher Hasher of the block
+     * @return Pending transactions per short Id
+     */
+    private Map<Long, Transaction> indexPendingTransactions(SipHash hasher) {
+        List<Transaction> pendingTransactions = DependencyManager.getPendingTransactions().getPendingTransactions();
+        Map<Long, Transaction> index = new HashMap<>(pendingTransactions.size() * 2);
+
+        for (Transaction transaction : pendingTransactions) {
+            long shortId = CompactBlock.shortId(hasher, transaction.getTxId());
+            if (index.containsKey(shortId)) {
+                index.put(shortId, null);
+            } else {
+                index.put(shortId, transaction);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Answers a request for transactions of a block of the own blockchain
+     *
+     * @param source  Requesting member
+     * @param message Raw buffer of the request
+     * @param offset  Offset of the request
+     * @param length  Length of the request
+     * @throws Exception Exception if the message is malformed or the answer could not be sent
+     */
+    public void handleGetBlockTransactions(Address source, byte[] message, int offset, int length) throws Exception {
+        BlockTransactions request = BinaryCodec.decodeGetBlockTransactions(message, offset, length);
+        Block block = DependencyManager.getBlockchain().getBlockByHash(request.getBlockHash());
+        if (block == null) {
+            logger.warn("CompactBlockRelay: Transactions of an unknown block requested.");
+            return;
+        }
+
+        List<Integer> indexes = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int index : request.getIndexes()) {
+            if (index < block.getTransactions().size()) {
+                indexes.add(index);
+                transactions.add(block.getTransactions().get(index));
+            }
+        }
+        BlockTransactions answer = new BlockTransactions(request.getBlockHash(), indexes, transactions);
+        channel.send(new Message(source, BinaryCodec.encodeBlockTransactions(answer)));
+    }
+
+    /**
+     * Completes a waiting compact block with the received transactions
+     *
+     * @param source  Member that sent the transactions
+     * @param message Raw buffer of the transactions
+     * @param offset  Offset of the transactions
+     * @param length  Length of the transactions
+     * @throws Exception Exception if the message is malformed or a request could not be sent
+     */
+    public void handleBlockTransactions(Address source, byte[] message, int offset, int length) throws Exception {
+        BlockTransactions blockTransactions = BinaryCodec.decodeBlockTransactions(message, offset, length);
+        PartialBlock partialBlock;
+        synchronized (partialBlocks) {
+            partialBlock = partialBlocks.remove(SHA3Util.digestToHex(blockTransactions.getBlockHash()));
+        }
+        if (partialBlock == null) {
+            return;
+        }
+
+        for (int i = 0; i < blockTransactions.getIndexes().size(); i++) {
+            int index = blockTransactions.getIndexes().get(i);
+            if (index < partialBlock.transactions.length) {
+                partialBlock.transactions[index] = blockTransactions.getTransactions().get(i);
+            }
+        }
+        List<Integer> missing = partialBlock.getMissingIndexes();
+        if (missing.isEmpty()) {
+            complete(source, partialBlock);
+        } else {
+            request(source, partialBlock, missing);
+        }
+    }
+
+    /**
+     * Hands a complete block to the consumer if its transactions match the merkle root, otherwise all transactions
+     * are requested
+     *
+     * @param source       Member that sent the compact block
+     * @param partialBlock Block with all transactions
+     * @throws Exception Exception if the request could not be sent
+     */
+    private void complete(Address source, PartialBlock partialBlock) throws Exception {
+        Block block = partialBlock.block;
+        block.setTransactions(new ArrayList<>(Arrays.asList(partialBlock.transactions)));
+
+        if (block.hasValidMerkleRoot()) {
+            //The transactions are still shared with the pending transactions, the blockchain sets their block Id once
+            //it accepted the block
+            blockConsumer.accept(block);
+        } else if (!partialBlock.fullyRequested) {
+            logger.warn("CompactBlockRelay: Rebuilt block does not match its header, requesting all transactions.");
+            partialBlock.fullyRequested = true;
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < partialBlock.transactions.length; i++) {
+                all.add(i);
+            }
+            request(source, partialBlock, all);
+        } else {
+            logger.warn("CompactBlockRelay: Received transactions do not match the block header.");
+        }
+    }
+
+    /**
+     * Stores a compact block until the missing transactions arrive and requests them from the sender
+     *
+     * @param source       Member that sent the compact block
+     * @param partialBlock Block with the known transactions
+     * @param missing      Indexes of the missing transactions
+     * @throws Exception Exception if the request could not be sent
+     */
+    private void request(Address source, PartialBlock partialBlock, List<Integer> missing) throws Exception {
+        byte[] blockHash = partialBlock.block.getBlockHash();
+        synchronized (partialBlocks) {
+            partialBlocks.put(SHA3Util.digestToHex(blockHash), partialBlock);
+            while (partialBlocks.size() > MAX_PARTIAL_BLOCKS) {
+                partialBlocks.remove(partialBlocks.keySet().iterator().next());
+            }
+        }
+        channel.send(new Message(source, BinaryCodec.encodeGetBlockTransactions(blockHash, missing)));
+    }
+
+    /**
+     * Compact block that waits for missing transactions
+     */
+    private static class PartialBlock {
+
+        //Block without transactions
+        private final Block block;
+        //Transactions in block order (null if missing)
+        private final Transaction[] transactions;
+        //All transactions were requested because the rebuilt block did not match its header
+        private boolean fullyRequested;
+
+        /**
+         * Creates a new partial block
+         *
+         * @param block        Block without transactions
+         * @param transactions Transactions in block order (null if missing)
+         */
+        private PartialBlock(Block block, Transaction[] transactions) {
+            this.block = block;
+            this.transactions = transactions;
+        }
+
+        /**
+         * Returns the indexes of the missing transactions
+         *
+         * @return Ascending indexes
+         */
+        private List<Integer> getMissingIndexes() {
+            List<Integer> missing = new ArrayList<>();
+            for (int i = 0; i < transactions.length; i++) {
+                if (transactions[i] == null) {
+                    missing.add(i);
+                }
+            }
+            return missing;
+        }
+    }
+}
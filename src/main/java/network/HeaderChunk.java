@@ -0,0 +1,45 @@
+package network;
+
+import models.BlockHeader;
+
+import java.util.List;
+
+/**
+ * Part of the headers of the main chain of a member that is sent to a synchronizing node
+ */
+public class HeaderChunk {
+
+    //Height (index in the main chain) of the first header of the chunk
+    private final int fromHeight;
+    //Height of the main chain of the sender when the chunk was created
+    private final int chainHeight;
+    //Headers of the chunk in chain order
+    private final List<BlockHeader> headers;
+
+    /**
+     * Creates a new chunk
+     *
+     * @param fromHeight  Height of the first header of the chunk
+     * @param chainHeight Height of the main chain of the sender
+     * @param headers     Headers of the chunk in chain order
+     */
+    public HeaderChunk(int fromHeight, int chainHeight, List<BlockHeader> headers) {
+        this.fromHeight = fromHeight;
+        this.chainHeight = chainHeight;
+        this.headers = headers;
+    }
+
+    //Getter:
+
+    public int getFromHeight() {
+        return fromHeight;
+    }
+
+    public int getChainHeight() {
+        return chainHeight;
+    }
+
+    public List<BlockHeader> getHeaders() {
+        return headers;
+    }
+}
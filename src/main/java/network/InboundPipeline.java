@@ -0,0 +1,223 @@
+package network;
+
+import models.Block;
+import models.Transaction;
+import network.adapters.BlockAdapter;
+import network.adapters.TransactionAdapter;
+import org.apache.log4j.Logger;
+import org.jgroups.Message;
+import utils.VerificationUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Staged handling of received blocks and transactions, so the receive thread of the channel only enqueues messages.
+ * <p>
+ * decode (one thread, arrival order) -> stateless validation (thread pool, signatures, merkle root, difficulty)
+ * -> stateful apply (one thread, arrival order, adds to the blockchain and the pending transactions)
+ * <p>
+ * The stages are connected by bounded queues. If the decode queue is full, transactions are dropped and all other
+ * messages wait on the receive thread; if the apply queue is full, the decode stage waits. The validated items are
+ * applied in the order they were decoded, a block therefore never overtakes its parent.
+ */
+public class InboundPipeline {
+
+    //Logger to show some additional information
+    private static Logger logger = Logger.getLogger(InboundPipeline.class);
+    //Capacity of the queues between the stages
+    public static final int QUEUE_CAPACITY = Integer.getInteger("pipeline.queueCapacity", 1024);
+    //Number of threads of the validation stage
+    public static final int VALIDATION_THREADS = Integer.getInteger("pipeline.validationThreads", Runtime.getRuntime().availableProcessors());
+
+    //Decodes a received message into a block or a transaction (null if the message was handled otherwise)
+    private final Decoder decoder;
+    //Handler that applies the validated items
+    private final MessageHandler handler;
+    //Received messages that wait for decoding
+    private final BlockingQueue<Message> decodeQueue;
+    //Validations in decode order (a validation returns null for an invalid item)
+    private final BlockingQueue<Future<Object>> applyQueue;
+    //Threads of the validation stage
+    private final ExecutorService validators;
+
+    //Received messages
+    private final AtomicLong received = new AtomicLong();
+    //Transactions dropped because the decode queue was full
+    private final AtomicLong dropped = new AtomicLong();
+    //Messages that could not be decoded
+    private final AtomicLong decodeErrors = new AtomicLong();
+    //Items that failed the stateless validation
+    private final AtomicLong rejected = new AtomicLong();
+    //Items handed to the handler
+    private final AtomicLong applied = new AtomicLong();
+    //Time the receive thread and the decode stage waited for full queues
+    private final AtomicLong stalledNanos = new AtomicLong();
+
+    /**
+     * Creates a new pipeline and starts its threads
+     *
+     * @param decoder Decodes a received message into a block or a transaction
+     * @param handler Handler that applies the validated items
+     */
+    public InboundPipeline(Decoder decoder, MessageHandler handler) {
+        this.decoder = decoder;
+        this.handler = handler;
+        this.decodeQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.applyQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.validators = Executors.newFixedThreadPool(Math.max(1, VALIDATION_THREADS), daemon("inbound-validate"));
+
+        daemon("inbound-decode").newThread(this::runDecodeStage).start();
+        daemon("inbound-apply").newThread(this::runApplyStage).start();
+    }
+
+    /**
+     * Enqueues a received message, called on the receive thread
+     *
+     * @param message   Received message
+     * @param droppable Boolean if the message may be dropped if the pipeline is full (transactions)
+     * @throws InterruptedException if the receive thread is interrupted while waiting
+     */
+    public void submit(Message message, boolean droppable) throws InterruptedException {
+        received.incrementAndGet();
+        if (decodeQueue.offer(message)) {
+            return;
+        }
+        if (droppable) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        decodeQueue.put(message);
+        stalledNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Enqueues an already decoded block or transaction for validation and apply (e.g. a rebuilt compact block).
+     * Called by the decode stage, so the item keeps its position in the arrival order.
+     *
+     * @param item Block or transaction
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void submitDecoded(Object item) throws InterruptedException {
+        Future<Object> validation = validators.submit(() -> validate(item) ? item : null);
+        if (applyQueue.offer(validation)) {
+            return;
+        }
+        long start = System.nanoTime();
+        applyQueue.put(validation);
+        stalledNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Decodes the received messages one after another
+     */
+    private void runDecodeStage() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Object item;
+                Message message = decodeQueue.take();
+                try {
+                    item = decoder.decode(message);
+                } catch (Exception e) {
+                    decodeErrors.incrementAndGet();
+                    logger.error("InboundPipeline: Could not decode message.", e);
+                    continue;
+                }
+                if (item != null) {
+                    submitDecoded(item);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Checks the parts of an item that do not depend on the state of the blockchain
+     *
+     * @param item Block or transaction
+     * @return Boolean if the item is valid
+     */
+    private boolean validate(Object item) {
+        if (item instanceof Block) {
+            return VerificationUtil.verifyBlockContent((Block) item);
+        }
+        return VerificationUtil.verifySignature((Transaction) item);
+    }
+
+    /**
+     * Applies the validated items in decode order, the only stage that changes the blockchain
+     */
+    private void runApplyStage() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Object item = applyQueue.take().get();
+                if (item == null) {
+                    rejected.incrementAndGet();
+                } else if (item instanceof Block) {
+                    handler.handleBlock(new BlockAdapter((Block) item));
+                    applied.incrementAndGet();
+                } else {
+                    handler.handleTransaction(new TransactionAdapter((Transaction) item));
+                    applied.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                rejected.incrementAndGet();
+                logger.error("InboundPipeline: Could not apply item.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the counters and queue sizes of the pipeline
+     *
+     * @return Metrics by name
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("received", received.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("decodeErrors", decodeErrors.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("applied", applied.get());
+        metrics.put("decodeQueue", (long) decodeQueue.size());
+        metrics.put("applyQueue", (long) applyQueue.size());
+        metrics.put("stalledMillis", TimeUnit.NANOSECONDS.toMillis(stalledNanos.get()));
+        return metrics;
+    }
+
+    /**
+     * Creates a factory for daemon threads
+     *
+     * @param name Name of the threads
+     * @return Thread factory
+     */
+    private static ThreadFactory daemon(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Decodes a received message
+     */
+    public interface Decoder {
+
+        /**
+         * Decodes a received message
+         *
+         * @param message Received message
+         * @return Block, transaction or null if the message needs no validation and apply
+         * @throws Exception Exception if the message is malformed
+         */
+        Object decode(Message message) throws Exception;
+    }
+}
@@ -0,0 +1,45 @@
+package network;
+
+import models.Block;
+
+import java.util.List;
+
+/**
+ * Part of the main chain of a member that is sent to a synchronizing node
+ */
+public class SyncChunk {
+
+    //Height (index in the main chain) of the first block of the chunk
+    private final int fromHeight;
+    //Height of the main chain of the sender when the chunk was created
+    private final int chainHeight;
+    //Blocks of the chunk in chain order
+    private final List<Block> blocks;
+
+    /**
+     * Creates a new chunk
+     *
+     * @param fromHeight  Height of the first block of the chunk
+     * @param chainHeight Height of the main chain of the sender
+     * @param blocks      Blocks of the chunk in chain order
+     */
+    public SyncChunk(int fromHeight, int chainHeight, List<Block> blocks) {
+        this.fromHeight = fromHeight;
+        this.chainHeight = chainHeight;
+        this.blocks = blocks;
+    }
+
+    //Getter:
+
+    public int getFromHeight() {
+        return fromHeight;
+    }
+
+    public int getChainHeight() {
+        return chainHeight;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+}
@@ -0,0 +1,298 @@
+package network;
+
+import models.Transaction;
+import org.apache.log4j.Logger;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import utils.HashKey;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Batched gossip of new transactions with inventory announcements.
+ * New transactions are collected for a short window (or until a batch is full) and announced with their Ids in one
+ * multicast. The members request the announced transactions they do not know yet from the announcing member and
+ * receive them in one message. A request that is not answered in time is repeated with a growing timeout, in turn to
+ * every member that announced the transaction (the original member again if no other one did).
+ */
+public class TransactionGossip {
+
+    //Logger to show some additional information
+    private static Logger logger = Logger.getLogger(TransactionGossip.class);
+    //Time a new transaction waits for further transactions before the inventory is announced
+    public static final long WINDOW_MILLIS = Long.getLong("gossip.windowMillis", 20L);
+    //Maximum number of transactions per inventory announcement
+    public static final int MAX_BATCH = Integer.getInteger("gossip.maxBatch", 500);
+    //Number of known transactions that are remembered (to answer requests and to skip known announcements)
+    public static final int KNOWN_CAPACITY = Integer.getInteger("gossip.knownCapacity", 100000);
+    //Time after that an unanswered request for a transaction is repeated, doubled with every further request
+    public static final long REQUEST_TIMEOUT_MILLIS = Long.getLong("gossip.requestTimeout", 2000L);
+    //Maximum number of requests for a transaction, afterwards it is only requested again if it is announced again
+    public static final int MAX_REQUEST_ATTEMPTS = Integer.getInteger("gossip.requestAttempts", 4);
+
+    //Communication channel
+    private final JChannel channel;
+    //Receives the transactions that were requested from other members
+    private final Consumer<Transaction> transactionConsumer;
+    //Checks if a transaction Id is known otherwise (e.g. already part of the blockchain)
+    private final Predicate<byte[]> knownElsewhere;
+    //Sends the inventory when the window of a batch elapsed
+    private final ScheduledExecutorService scheduler;
+    //Transactions that wait for the next announcement
+    private final List<Transaction> batch = new ArrayList<>();
+    //Known transactions per Id (oldest first, the Ids are wrapped raw so no hex String is created per transaction)
+    private final Map<HashKey, Transaction> known;
+    //Members that announced the transactions of the open requests per transaction Id (oldest first)
+    private final Map<HashKey, List<Address>> requested;
+    //Time after that an unanswered request is repeated
+    private final long requestTimeoutMillis;
+
+    /**
+     * Creates a new transaction gossip
+     *
+     * @param channel             Communication channel
+     * @param transactionConsumer Receives the transactions that were requested from other members
+     * @param knownElsewhere      Checks if a transaction Id is known otherwise
+     */
+    public TransactionGossip(JChannel channel, Consumer<Transaction> transactionConsumer, Predicate<byte[]> knownElsewhere) {
+        this(channel, transactionConsumer, knownElsewhere, REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a new transaction gossip with a custom request timeout
+     *
+     * @param channel              Communication channel
+     * @param transactionConsumer  Receives the transactions that were requested from other members
+     * @param knownElsewhere       Checks if a transaction Id is known otherwise
+     * @param requestTimeoutMillis Time after that an unanswered request is repeated
+     */
+    TransactionGossip(JChannel channel, Consumer<Transaction> transactionConsumer, Predicate<byte[]> knownElsewhere,
+                      long requestTimeoutMillis) {
+        this.channel = channel;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.transactionConsumer = transactionConsumer;
+        this.knownElsewhere = knownElsewhere;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tx-gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.known = new LinkedHashMap<HashKey, Transaction>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HashKey, Transaction> eldest) {
+                return size() > KNOWN_CAPACITY;
+            }
+        };
+        this.requested = new LinkedHashMap<HashKey, List<Address>>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HashKey, List<Address>> eldest) {
+                return size() > KNOWN_CAPACITY;
+            }
+        };
+    }
+
+    /**
+     * Adds a new transaction to the next inventory announcement
+     *
+     * @param transaction New transaction
+     */
+    public void announce(Transaction transaction) {
+        remember(transaction);
+        boolean full;
+        boolean first;
+        synchronized (batch) {
+            batch.add(transaction);
+            full = batch.size() >= MAX_BATCH;
+            first = batch.size() == 1;
+        }
+        if (full) {
+            flush();
+        } else if (first) {
+            scheduler.schedule(this::flush, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Announces the Ids of the collected transactions to all members
+     */
+    public void flush() {
+        List<byte[]> txIds = new ArrayList<>();
+        synchronized (batch) {
+            for (Transaction transaction : batch) {
+                txIds.add(transaction.getTxId());
+            }
+            batch.clear();
+        }
+        if (txIds.isEmpty()) {
+            return;
+        }
+        try {
+            channel.send(new Message(null, BinaryCodec.encodeInventory(txIds)));
+        } catch (Exception e) {
+            logger.error("TransactionGossip: Could not announce transactions.", e);
+        }
+    }
+
+    /**
+     * Requests the announced transactions that are neither known nor requested yet, for already requested
+     * transactions the member is remembered as another member to repeat the request to
+     *
+     * @param source  Announcing member
+     * @param message Raw buffer of the announcement
+     * @param offset  Offset of the announcement
+     * @param length  Length of the announcement
+     * @throws Exception Exception if the message is malformed or the request could not be sent
+     */
+    public void handleInventory(Address source, byte[] message, int offset, int length) throws Exception {
+        List<byte[]> missing = new ArrayList<>();
+
+        for (byte[] txId : BinaryCodec.decodeInventory(message, offset, length)) {
+            HashKey key = HashKey.of(txId);
+            if (isKnown(key) || knownElsewhere.test(txId)) {
+                continue;
+            }
+            synchronized (requested) {
+                List<Address> announcers = requested.get(key);
+                if (announcers != null) {
+                    if (!announcers.contains(source)) {
+                        announcers.add(source);
+                    }
+                    continue;
+                }
+                announcers = new ArrayList<>();
+                announcers.add(source);
+                requested.put(key, announcers);
+            }
+            missing.add(txId);
+        }
+        if (!missing.isEmpty()) {
+            request(source, missing, 0);
+        }
+    }
+
+    /**
+     * Sends a request for transactions and schedules its repetition in case it is not answered in time
+     *
+     * @param target  Member to request the transactions from
+     * @param txIds   Ids of the requested transactions
+     * @param attempt Number of the previous requests for the transactions
+     * @throws Exception Exception if the request could not be sent
+     */
+    private void request(Address target, List<byte[]> txIds, int attempt) throws Exception {
+        scheduler.schedule(() -> repeatRequest(txIds, attempt + 1), requestTimeoutMillis << attempt, TimeUnit.MILLISECONDS);
+        channel.send(new Message(target, BinaryCodec.encodeGetTransactions(txIds)));
+    }
+
+    /**
+     * Repeats a request for the transactions that did not arrive yet. Every transaction is requested from the next
+     * member that announced it, transactions that were requested too often are given up.
+     *
+     * @param txIds   Ids of the requested transactions
+     * @param attempt Number of the previous requests for the transactions
+     */
+    private void repeatRequest(List<byte[]> txIds, int attempt) {
+        Map<Address, List<byte[]>> missing = new LinkedHashMap<>();
+        synchronized (requested) {
+            for (byte[] txId : txIds) {
+                HashKey key = HashKey.of(txId);
+                List<Address> announcers = requested.get(key);
+                if (announcers == null) {
+                    continue;
+                }
+                if (attempt >= MAX_REQUEST_ATTEMPTS) {
+                    requested.remove(key);
+                    continue;
+                }
+                Address target = announcers.get(attempt % announcers.size());
+                missing.computeIfAbsent(target, address -> new ArrayList<>()).add(txId);
+            }
+        }
+
+        for (Map.Entry<Address, List<byte[]>> entry : missing.entrySet()) {
+            logger.info("TransactionGossip: Repeating request for " + entry.getValue().size() + " transactions.");
+            try {
+                request(entry.getKey(), entry.getValue(), attempt);
+            } catch (Exception e) {
+                logger.error("TransactionGossip: Could not repeat request.", e);
+            }
+        }
+    }
+
+    /**
+     * Answers a request with the requested transactions that are known
+     *
+     * @param source  Requesting member
+     * @param message Raw buffer of the request
+     * @param offset  Offset of the request
+     * @param length  Length of the request
+     * @throws Exception Exception if the message is malformed or the answer could not be sent
+     */
+    public void handleGetTransactions(Address source, byte[] message, int offset, int length) throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        synchronized (known) {
+            for (byte[] txId : BinaryCodec.decodeGetTransactions(message, offset, length)) {
+                Transaction transaction = known.get(HashKey.of(txId));
+                if (transaction != null) {
+                    transactions.add(transaction);
+                }
+            }
+        }
+        if (!transactions.isEmpty()) {
+            channel.send(new Message(source, BinaryCodec.encodeTransactions(transactions)));
+        }
+    }
+
+    /**
+     * Hands the received transactions that are not known yet to the consumer
+     *
+     * @param source  Member that sent the transactions
+     * @param message Raw buffer of the transactions
+     * @param offset  Offset of the transactions
+     * @param length  Length of the transactions
+     * @throws Exception Exception if the message is malformed
+     */
+    public void handleTransactions(Address source, byte[] message, int offset, int length) throws Exception {
+        for (Transaction transaction : BinaryCodec.decodeTransactions(message, offset, length)) {
+            HashKey key = HashKey.of(transaction.getTxId());
+            synchronized (requested) {
+                requested.remove(key);
+            }
+            if (!isKnown(key)) {
+                remember(transaction);
+                transactionConsumer.accept(transaction);
+            }
+        }
+    }
+
+    /**
+     * Remembers a transaction as known
+     *
+     * @param transaction Transaction
+     */
+    private void remember(Transaction transaction) {
+        synchronized (known) {
+            known.put(HashKey.of(transaction.getTxId()), transaction);
+        }
+    }
+
+    /**
+     * Checks if a transaction is known
+     *
+     * @param key Wrapped transaction Id
+     * @return Boolean if the transaction is known
+     */
+    private boolean isKnown(HashKey key) {
+        synchronized (known) {
+            return known.containsKey(key);
+        }
+    }
+}
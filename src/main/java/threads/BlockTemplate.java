@@ -0,0 +1,109 @@
+package threads;
+
+import logic.Blockchain;
+import models.Block;
+import models.Transaction;
+import utils.SizeUtil;
+import utils.merkle.MerkleTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Block the miner is working on. Newly arrived transactions are appended to the block, only the right edge of the
+ * merkle tree and the size of the new transactions are calculated instead of building a new block.
+ */
+class BlockTemplate {
+
+    //Block that gets mined
+    private Block block;
+    //Merkle tree over the transactions of the block
+    private MerkleTree merkleTree;
+    //Transactions already contained in the block
+    private Set<Transaction> includedTransactions;
+
+    /**
+     * Creates a new block template on top of the given block with the given transactions
+     *
+     * @param transactions Transactions for the block
+     * @param previousHash Hash of the previous block
+     */
+    BlockTemplate(List<Transaction> transactions, byte[] previousHash) {
+        block = new Block(previousHash);
+        merkleTree = new MerkleTree();
+        includedTransactions = new HashSet<>(transactions);
+
+        appendTransactions(transactions);
+    }
+
+    /**
+     * Checks if the template is still built on top of the given block
+     *
+     * @param previousHash Hash of the current best block
+     * @return Boolean if the template builds on the given block
+     */
+    boolean buildsOn(byte[] previousHash) {
+        return Arrays.equals(block.getBlockHeader().getPreviousHash(), previousHash);
+    }
+
+    /**
+     * Checks if all the given transactions that are not part of the block yet still fit into it
+     *
+     * @param transactions Transactions for the next block ordered by fee
+     * @return Boolean if the new transactions can be appended
+     */
+    boolean canAppend(List<Transaction> transactions) {
+        int transactionCount = block.getTransactionCount();
+        int blockSize = block.getBlockSize();
+
+        for (Transaction transaction : transactions) {
+            if (!includedTransactions.contains(transaction)) {
+                transactionCount++;
+                blockSize += SizeUtil.calculateTransactionSize(transaction);
+            }
+        }
+        return transactionCount <= SizeUtil.calculateTransactionCapacity() && blockSize <= Blockchain.MAX_BLOCK_SIZE_BYTES;
+    }
+
+    /**
+     * Appends the given transactions that are not part of the block yet and restarts the nonce if the block changed
+     *
+     * @param transactions Transactions for the next block
+     * @return Number of appended transactions
+     */
+    int append(List<Transaction> transactions) {
+        List<Transaction> newTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (includedTransactions.add(transaction)) {
+                newTransactions.add(transaction);
+            }
+        }
+
+        if (!newTransactions.isEmpty()) {
+            appendTransactions(newTransactions);
+            block.setNonce(0);
+        }
+        return newTransactions.size();
+    }
+
+    /**
+     * Adds transactions to the merkle tree and appends them with the new merkle root and size to the block
+     *
+     * @param transactions Transactions to add
+     */
+    private void appendTransactions(List<Transaction> transactions) {
+        int blockSize = block.getBlockSize();
+        for (Transaction transaction : transactions) {
+            blockSize += SizeUtil.calculateTransactionSize(transaction);
+            merkleTree.append(transaction);
+        }
+        block.appendTransactions(transactions, merkleTree.getMerkleTreeRoot(), blockSize);
+    }
+
+    Block getBlock() {
+        return block;
+    }
+}
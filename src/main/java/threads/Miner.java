@@ -4,27 +4,46 @@ import logic.Blockchain;
 import logic.DependencyManager;
 import logic.PendingTransactions;
 import models.Block;
+import models.BlockHeader;
 import models.Transaction;
 import org.apache.log4j.Logger;
+import utils.SHA3Util;
 import utils.SignatureUtil;
 
 import java.security.KeyPair;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Miner implements Runnable {
 
+    //Number of nonces a block header offers (the whole 32 bit range of the int nonce)
+    private final static long NONCE_SPACE = 1L << 32;
+    //Default number of mining workers, can be set with -Dminer.workers=<count>
+    public final static int DEFAULT_WORKER_COUNT = Integer.getInteger("miner.workers", 1);
+
     //Logger to show some additional information
     private final static Logger logger = Logger.getLogger( Miner.class );
     //All the listener that listen to a miner
     private List<MinerListener> listeners = new ArrayList<>();
     //Boolean if the miner is running at the moment
-    private boolean mining = true;
+    private volatile boolean mining = true;
     //Boolean if the block the miner is mining at the moment should be canceled
-    private boolean cancelBlock = false;
+    private volatile boolean cancelBlock = false;
+    //Number of workers grinding disjoint nonce ranges of the same block
+    private int workerCount;
+    //Worker pool for the parallel mining mode (null if the miner runs single threaded)
+    private ExecutorService workers;
     //Actual mined block of the miner
     private Block block;
+    //Template of the actual mined block, new transactions get appended to it
+    private BlockTemplate template;
     //Unique ID of the miner
     private UUID minerId;
     //Keypair of the miner to store the received coins if a valid block is created
@@ -34,9 +53,30 @@ public class Miner implements Runnable {
      * Creates a new miner
      */
     public Miner() {
+        this(1);
+    }
+
+    /**
+     * Creates a new miner that splits the nonce space of a block across the given number of workers
+     *
+     * @param workerCount Number of workers (1 mines on the calling thread only)
+     */
+    public Miner(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be at least 1");
+        }
         minerId = UUID.randomUUID();
         keyPair = SignatureUtil.generateKeyPair();
         SignatureUtil.saveKeyPair(keyPair, minerId.toString());
+
+        this.workerCount = workerCount;
+        if (workerCount > 1) {
+            workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "miner-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     /**
@@ -48,35 +88,153 @@ public class Miner implements Runnable {
         while (isMining()) {
             block = getNewBlockFromMining();
 
-            while (!cancelBlock && doesNotFullfillDifficulty(block.getBlockHash())) {
-                try {
-                    block.incrementNonce();
-                } catch (ArithmeticException e) {
-                    restartMining();
-                }
+            boolean found;
+            if (workers == null) {
+                found = mineSequential(block);
+            } else {
+                found = mineParallel(block);
             }
 
-            if (cancelBlock) {
+            if (cancelBlock || !found) {
+                if (!cancelBlock) {
+                    template = null;
+                }
                 block = null;
                 cancelBlock = false;
             } else {
+                template = null;
                 blockMined(block);
             }
         }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Grinds the nonces of the block one after another on the miner thread, starting at the current nonce
+     *
+     * @param block Block to mine
+     * @return Boolean if a valid nonce was found (false if the block got canceled or the nonce space is exhausted)
+     */
+    private boolean mineSequential(Block block) {
+        byte[] encodedHeader = block.getBlockHeader().asBytes();
+        SHA3Util.Midstate midstate = absorbHeaderPrefix(encodedHeader);
+
+        while (!cancelBlock && doesNotFullfillDifficulty(hashNonce(midstate, encodedHeader))) {
+            try {
+                block.incrementNonce();
+                BlockHeader.writeNonce(encodedHeader, block.getNonce());
+            } catch (ArithmeticException e) {
+                logger.info("Miner: Nonce space exhausted.");
+                return false;
+            }
+        }
+        return !cancelBlock;
+    }
+
+    /**
+     * Splits the nonce space of the block into disjoint ranges and grinds them with the worker pool.
+     * The first worker that finds a valid nonce stops all the others.
+     *
+     * @param block Block to mine
+     * @return Boolean if a valid nonce was found (false if the block got canceled or the nonce space is exhausted)
+     */
+    private boolean mineParallel(Block block) {
+        AtomicBoolean found = new AtomicBoolean(false);
+        AtomicInteger winningNonce = new AtomicInteger();
+        long rangeSize = NONCE_SPACE / workerCount;
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            long start = i * rangeSize;
+            long end = (i == workerCount - 1) ? NONCE_SPACE : start + rangeSize;
+            byte[] encodedHeader = block.getBlockHeader().asBytes();
+            futures.add(workers.submit(() -> mineNonceRange(encodedHeader, start, end, found, winningNonce)));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                found.set(false);
+                futures.forEach(f -> f.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Miner: Mining worker failed.", e.getCause());
+            }
+        }
+
+        if (found.get()) {
+            block.setNonce(winningNonce.get());
+        } else if (!cancelBlock) {
+            logger.info("Miner: Nonce space exhausted.");
+        }
+        return found.get();
+    }
+
+    /**
+     * Grinds the nonces in [start, end) by patching the nonce of the encoded block header
+     *
+     * @param encodedHeader Binary encoding of the block header owned by this worker
+     * @param start         First nonce of the range (inclusive)
+     * @param end           Last nonce of the range (exclusive)
+     * @param found         Flag shared by all workers, set by the first worker that finds a valid nonce
+     * @param winningNonce  Valid nonce set by the worker that found it
+     */
+    private void mineNonceRange(byte[] encodedHeader, long start, long end, AtomicBoolean found, AtomicInteger winningNonce) {
+        Blockchain blockchain = DependencyManager.getBlockchain();
+        SHA3Util.Midstate midstate = absorbHeaderPrefix(encodedHeader);
+
+        for (long nonce = start; nonce < end && !found.get() && !cancelBlock; nonce++) {
+            BlockHeader.writeNonce(encodedHeader, (int) nonce);
+            if (blockchain.fulfillsDifficulty(hashNonce(midstate, encodedHeader)) && found.compareAndSet(false, true)) {
+                winningNonce.set((int) nonce);
+            }
+        }
+    }
+
+    /**
+     * Absorbs everything of the encoded block header except the nonce, which is constant while the block is mined
+     *
+     * @param encodedHeader Binary encoding of the block header
+     * @return Midstate of the header prefix
+     */
+    private SHA3Util.Midstate absorbHeaderPrefix(byte[] encodedHeader) {
+        return SHA3Util.absorbPrefix(encodedHeader, 0, BlockHeader.NONCE_OFFSET);
+    }
+
+    /**
+     * Hashes the encoded block header by only absorbing its nonce behind the midstate
+     *
+     * @param midstate      Midstate of the header prefix
+     * @param encodedHeader Binary encoding of the block header with the current nonce
+     * @return Hash of the block header
+     */
+    private byte[] hashNonce(SHA3Util.Midstate midstate, byte[] encodedHeader) {
+        return midstate.hash256(encodedHeader, BlockHeader.NONCE_OFFSET, BlockHeader.ENCODED_SIZE - BlockHeader.NONCE_OFFSET);
     }
 
     /**
-     * Returns the new mined block
+     * Returns the block to mine next. If the current template still builds on the best block and the new pending
+     * transactions fit into it, they are appended to it; otherwise a new template is created.
      * @return Block
      */
     private Block getNewBlockFromMining() {
-        logger.info("Miner: Creating new Block.");
-
         PendingTransactions pendingTransactions = DependencyManager.getPendingTransactions();
         Blockchain blockchain = DependencyManager.getBlockchain();
         List<Transaction> transactions = pendingTransactions.getTransactionsForNextBlock();
+        byte[] previousHash = blockchain.getPreviousHash();
 
-        return new Block(transactions, blockchain.getPreviousHash());
+        if (template != null && template.buildsOn(previousHash) && template.canAppend(transactions)) {
+            logger.info("Miner: Extending block template.");
+            template.append(transactions);
+        } else {
+            logger.info("Miner: Creating new Block.");
+            template = new BlockTemplate(transactions, previousHash);
+        }
+        return template.getBlock();
     }
 
     /**
@@ -89,18 +247,6 @@ public class Miner implements Runnable {
         return !blockchain.fulfillsDifficulty(digest);
     }
 
-    /**
-     * Restarts the miner with the new pending transactions
-     */
-    private void restartMining() {
-        logger.info("Miner: Mining restarted.");
-
-        PendingTransactions pendingTransactions = DependencyManager.getPendingTransactions();
-        List<Transaction> transactions = pendingTransactions.getTransactionsForNextBlock();
-
-        block.setTransactions(transactions);
-    }
-
     /**
      * Miner mined a new block notify listeners and transactions and set keypair
      * @param block Block mined
@@ -129,6 +275,14 @@ public class Miner implements Runnable {
         return mining;
     }
 
+    /**
+     * Returns the number of workers the miner uses
+     * @return Number of workers
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
     /**
      * Stops the miner
      */
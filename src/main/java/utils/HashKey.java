@@ -0,0 +1,164 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Compact map key for hashes and addresses.
+ * The first 32 bytes are stored in four longs, so a block hash or transaction Id needs no additional array, longer
+ * values (e.g. addresses) keep the rest in a small long Array. The hash code is calculated once.
+ * Hex Strings are only parsed where they enter the node (REST), all internal lookups use the byte Arrays.
+ */
+public final class HashKey {
+
+    //Number of bytes stored in the four words
+    private static final int INLINE_SIZE = 32;
+
+    //Bytes 0 to 7 of the value (big endian, missing bytes are zero)
+    private final long word0;
+    //Bytes 8 to 15 of the value
+    private final long word1;
+    //Bytes 16 to 23 of the value
+    private final long word2;
+    //Bytes 24 to 31 of the value
+    private final long word3;
+    //Bytes after the first 32 bytes, null if the value is not longer than 32 bytes
+    private final long[] tail;
+    //Length of the value in bytes
+    private final int length;
+    //Precomputed hash code
+    private final int hash;
+
+    /**
+     * Creates a new key of the given bytes
+     *
+     * @param bytes Hash or address
+     */
+    private HashKey(byte[] bytes) {
+        length = bytes.length;
+        word0 = readWord(bytes, 0);
+        word1 = readWord(bytes, 8);
+        word2 = readWord(bytes, 16);
+        word3 = readWord(bytes, 24);
+
+        if (length > INLINE_SIZE) {
+            tail = new long[(length - INLINE_SIZE + 7) / 8];
+            for (int i = 0; i < tail.length; i++) {
+                tail[i] = readWord(bytes, INLINE_SIZE + i * 8);
+            }
+        } else {
+            tail = null;
+        }
+
+        long h = length;
+        h = 31 * h + word0;
+        h = 31 * h + word1;
+        h = 31 * h + word2;
+        h = 31 * h + word3;
+        if (tail != null) {
+            for (long word : tail) {
+                h = 31 * h + word;
+            }
+        }
+        hash = (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the key of a hash or address
+     *
+     * @param bytes Hash or address
+     * @return Key of the bytes
+     */
+    public static HashKey of(byte[] bytes) {
+        return new HashKey(bytes);
+    }
+
+    /**
+     * Returns the key of a hash or address given as hex String (as used by the REST interface)
+     *
+     * @param hex Hex String
+     * @return Key of the decoded bytes or null if the String is no valid hex String
+     */
+    public static HashKey fromHex(String hex) {
+        if (hex == null || hex.length() % 2 != 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return new HashKey(bytes);
+    }
+
+    /**
+     * Reads up to eight bytes as big endian long
+     *
+     * @param bytes  Byte Array to read from
+     * @param offset Offset of the first byte
+     * @return Long with the bytes, missing bytes are zero
+     */
+    private static long readWord(byte[] bytes, int offset) {
+        long word = 0;
+        for (int i = 0; i < 8; i++) {
+            int index = offset + i;
+            word = (word << 8) | ((index < bytes.length) ? (bytes[index] & 0xFF) : 0);
+        }
+        return word;
+    }
+
+    /**
+     * Returns the value of the key
+     *
+     * @return Hash or address as byte Array
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            long word;
+            if (i < INLINE_SIZE) {
+                word = (i < 8) ? word0 : (i < 16) ? word1 : (i < 24) ? word2 : word3;
+            } else {
+                word = tail[(i - INLINE_SIZE) / 8];
+            }
+            bytes[i] = (byte) (word >>> (56 - 8 * (i % 8)));
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the value of the key as hex String
+     *
+     * @return Hex String
+     */
+    public String toHex() {
+        return SHA3Util.digestToHex(toBytes());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HashKey)) {
+            return false;
+        }
+        HashKey that = (HashKey) o;
+        return hash == that.hash && length == that.length && word0 == that.word0 && word1 == that.word1
+                && word2 == that.word2 && word3 == that.word3 && Arrays.equals(tail, that.tail);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
@@ -1,5 +1,6 @@
 package utils;
 
+import org.bouncycastle.crypto.digests.SHA3Digest;
 import org.bouncycastle.jcajce.provider.digest.SHA3;
 import org.bouncycastle.util.encoders.Hex;
 
@@ -7,12 +8,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Helperclass to calculate the hash of objects
  */
 public final class SHA3Util {
 
+    //Digest per thread, reused for every byte Array hashed on that thread
+    private static final ThreadLocal<SHA3.DigestSHA3> DIGEST = ThreadLocal.withInitial(SHA3.Digest256::new);
+
     private SHA3Util() {
     }
 
@@ -65,9 +70,19 @@ public final class SHA3Util {
      * @return Hash of the byte Array
      */
     public static byte[] hash256(byte[] bytes) {
-        SHA3.DigestSHA3 digestSHA3 = new SHA3.Digest256();
+        return DIGEST.get().digest(bytes);
+    }
 
-        return digestSHA3.digest(bytes);
+    /**
+     * Absorbs a constant prefix once so that many suffixes can be hashed behind it (e.g. the nonce of a block header)
+     *
+     * @param bytes  Byte Array containing the prefix
+     * @param offset Offset of the prefix
+     * @param length Length of the prefix
+     * @return Digest holding the absorbed prefix state
+     */
+    public static Midstate absorbPrefix(byte[] bytes, int offset, int length) {
+        return new Midstate(bytes, offset, length);
     }
 
     /**
@@ -79,4 +94,56 @@ public final class SHA3Util {
     public static byte[] hexToDigest(String hex) {
         return Hex.decode(hex);
     }
+
+    /**
+     * SHA3-256 digest that keeps the sponge state of an absorbed prefix and restores it before every suffix.
+     * Not thread safe, every mining worker needs its own instance.
+     */
+    public static final class Midstate extends SHA3Digest {
+
+        //Size of the resulting hash in bytes
+        private static final int HASH_SIZE = 32;
+
+        //Sponge state after absorbing the prefix
+        private final byte[] prefixState;
+        //Queued (not yet permuted) bytes of the prefix
+        private final byte[] prefixQueue;
+        //Number of queued bits of the prefix
+        private final int prefixBitsInQueue;
+
+        /**
+         * Creates a new midstate by absorbing the given prefix
+         *
+         * @param bytes  Byte Array containing the prefix
+         * @param offset Offset of the prefix
+         * @param length Length of the prefix
+         */
+        private Midstate(byte[] bytes, int offset, int length) {
+            super(256);
+            update(bytes, offset, length);
+            prefixState = state.clone();
+            prefixQueue = Arrays.copyOf(dataQueue, bitsInQueue / 8);
+            prefixBitsInQueue = bitsInQueue;
+        }
+
+        /**
+         * Hashes the prefix followed by the given suffix
+         *
+         * @param bytes  Byte Array containing the suffix
+         * @param offset Offset of the suffix
+         * @param length Length of the suffix
+         * @return Hash of prefix and suffix
+         */
+        public byte[] hash256(byte[] bytes, int offset, int length) {
+            System.arraycopy(prefixState, 0, state, 0, prefixState.length);
+            System.arraycopy(prefixQueue, 0, dataQueue, 0, prefixQueue.length);
+            bitsInQueue = prefixBitsInQueue;
+            squeezing = false;
+
+            update(bytes, offset, length);
+            byte[] digest = new byte[HASH_SIZE];
+            doFinal(digest, 0);
+            return digest;
+        }
+    }
 }
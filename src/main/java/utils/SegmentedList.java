@@ -0,0 +1,207 @@
+package utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+
+/**
+ * List for a single writer and many concurrent readers that only grows at the end (and can be cut back).
+ * The elements are stored in fixed size segments, so an append never copies elements, only the small Array of
+ * segments is copied when it is full. The segments and the size are published together as one immutable state with
+ * a volatile write: a reader works on the state it read and sees all elements below its size.
+ * <p>
+ * Truncation never clears a slot that a published state still covers. The segment that contains the new end is
+ * copied, so later appends do not overwrite elements a reader of an older, longer state still sees. Iterators and
+ * {@link #snapshot()} work on one state and are not affected by concurrent appends or truncation.
+ * Writes are synchronized, reads are not.
+ *
+ * @param <E> Type of the elements
+ */
+public class SegmentedList<E> extends AbstractList<E> implements RandomAccess {
+
+    //Number of bits of the index inside a segment
+    private static final int SEGMENT_SHIFT = 10;
+    //Number of elements of a segment
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    //Mask of the index inside a segment
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    //Published segments and size
+    private volatile State<E> state;
+
+    /**
+     * Creates a new empty list
+     */
+    public SegmentedList() {
+        state = new State<>(new Object[4][], 0);
+    }
+
+    /**
+     * Creates a new list with the elements of a collection
+     *
+     * @param elements Elements to add
+     */
+    public SegmentedList(Collection<? extends E> elements) {
+        this();
+        addAll(elements);
+    }
+
+    /**
+     * Appends an element at the end of the list
+     *
+     * @param element Element to append
+     * @return Always true
+     */
+    @Override
+    public synchronized boolean add(E element) {
+        State<E> current = state;
+        int index = current.size;
+        int segment = index >>> SEGMENT_SHIFT;
+        Object[][] segments = current.segments;
+
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        if (segments[segment] == null) {
+            segments[segment] = new Object[SEGMENT_SIZE];
+        }
+        segments[segment][index & SEGMENT_MASK] = element;
+
+        state = new State<>(segments, index + 1);
+        return true;
+    }
+
+    /**
+     * Returns an element of the list
+     *
+     * @param index Index of the element
+     * @return Element
+     * @throws IndexOutOfBoundsException if the index is negative or not below the size
+     */
+    @Override
+    public E get(int index) {
+        return state.get(index);
+    }
+
+    /**
+     * Returns an element of the list or null if the list is not that long (anymore)
+     *
+     * @param index Index of the element
+     * @return Element or null if the index is not below the size
+     * @throws IndexOutOfBoundsException if the index is negative
+     */
+    public E getIfPresent(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        State<E> current = state;
+        return (index < current.size) ? current.get(index) : null;
+    }
+
+    /**
+     * Cuts the list back to the given size. Readers of a longer state keep seeing the removed elements.
+     *
+     * @param newSize New size of the list
+     */
+    public synchronized void truncate(int newSize) {
+        State<E> current = state;
+        if (newSize < 0 || newSize >= current.size) {
+            return;
+        }
+
+        //The segments after the new end are dropped and the segment of the new end is copied
+        Object[][] segments = new Object[current.segments.length][];
+        int lastSegment = newSize >>> SEGMENT_SHIFT;
+        System.arraycopy(current.segments, 0, segments, 0, lastSegment);
+        if ((newSize & SEGMENT_MASK) != 0) {
+            segments[lastSegment] = Arrays.copyOf(current.segments[lastSegment], SEGMENT_SIZE);
+            Arrays.fill(segments[lastSegment], newSize & SEGMENT_MASK, SEGMENT_SIZE, null);
+        }
+        state = new State<>(segments, newSize);
+    }
+
+    /**
+     * Returns the number of elements
+     *
+     * @return Size of the list
+     */
+    @Override
+    public int size() {
+        return state.size;
+    }
+
+    /**
+     * Returns an immutable view of the current elements that is not affected by later appends or truncation
+     *
+     * @return Snapshot of the list
+     */
+    public List<E> snapshot() {
+        return state;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return state.iterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return state.listIterator(index);
+    }
+
+    /**
+     * Removes the elements of a range, only supported at the end of the list (e.g. subList(from, size()).clear())
+     *
+     * @param fromIndex First index to remove
+     * @param toIndex   Index after the last index to remove
+     * @throws UnsupportedOperationException if the range does not reach the end of the list
+     */
+    @Override
+    protected synchronized void removeRange(int fromIndex, int toIndex) {
+        if (toIndex != state.size) {
+            throw new UnsupportedOperationException("Only the end of the list can be removed");
+        }
+        truncate(fromIndex);
+    }
+
+    /**
+     * Published state of the list: the segments and the number of elements in them. The slots below the size are
+     * never changed again.
+     */
+    private static final class State<E> extends AbstractList<E> implements RandomAccess {
+
+        //Segments of the elements
+        private final Object[][] segments;
+        //Number of elements
+        private final int size;
+
+        /**
+         * Creates a new state
+         *
+         * @param segments Segments of the elements
+         * @param size     Number of elements
+         */
+        private State(Object[][] segments, int size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (E) segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
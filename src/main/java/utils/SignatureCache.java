@@ -0,0 +1,117 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of successfully verified signatures.
+ * A transaction is verified when it is submitted and again when it arrives inside a block, the second check can be
+ * answered from this cache. The least recently used entries are evicted when the cache is full.
+ */
+public class SignatureCache {
+
+    //Maximum number of cached signatures
+    private final int capacity;
+    //Verified signatures in access order (key: hash of the signed data, the signature and the public key)
+    private final Map<String, Boolean> verifiedSignatures;
+
+    /**
+     * Creates a new empty signature cache
+     *
+     * @param capacity Maximum number of cached signatures
+     */
+    public SignatureCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the signature cache must be positive");
+        }
+        this.capacity = capacity;
+        this.verifiedSignatures = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SignatureCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Checks if the signature was already verified for the given data and public key
+     *
+     * @param hash      Signed data
+     * @param signature Signature
+     * @param publicKey Public key
+     * @return Boolean if the signature is known to be valid
+     */
+    public synchronized boolean contains(byte[] hash, byte[] signature, byte[] publicKey) {
+        return verifiedSignatures.get(key(hash, signature, publicKey)) != null;
+    }
+
+    /**
+     * Stores a successfully verified signature
+     *
+     * @param hash      Signed data
+     * @param signature Valid signature
+     * @param publicKey Public key
+     */
+    public synchronized void add(byte[] hash, byte[] signature, byte[] publicKey) {
+        verifiedSignatures.put(key(hash, signature, publicKey), Boolean.TRUE);
+    }
+
+    /**
+     * Removes all cached signatures
+     */
+    public synchronized void clear() {
+        verifiedSignatures.clear();
+    }
+
+    /**
+     * Returns the number of cached signatures
+     *
+     * @return Number of cached signatures
+     */
+    public synchronized int size() {
+        return verifiedSignatures.size();
+    }
+
+    /**
+     * Returns the maximum number of cached signatures
+     *
+     * @return Capacity of the cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Calculates the cache key. Every input of the verification is part of the key so that a changed transaction,
+     * signature or sender never matches an old entry.
+     *
+     * @param hash      Signed data
+     * @param signature Signature
+     * @param publicKey Public key
+     * @return Key as hex String
+     */
+    private static String key(byte[] hash, byte[] signature, byte[] publicKey) {
+        byte[] concatenated = new byte[12 + hash.length + signature.length + publicKey.length];
+        int offset = putArray(concatenated, 0, hash);
+        offset = putArray(concatenated, offset, signature);
+        putArray(concatenated, offset, publicKey);
+        return SHA3Util.digestToHex(SHA3Util.hash256(concatenated));
+    }
+
+    /**
+     * Writes the length and the content of an Array into the buffer
+     *
+     * @param buffer Buffer to write to
+     * @param offset Offset in the buffer
+     * @param array  Array to write
+     * @return Offset behind the written Array
+     */
+    private static int putArray(byte[] buffer, int offset, byte[] array) {
+        buffer[offset] = (byte) (array.length >>> 24);
+        buffer[offset + 1] = (byte) (array.length >>> 16);
+        buffer[offset + 2] = (byte) (array.length >>> 8);
+        buffer[offset + 3] = (byte) array.length;
+        System.arraycopy(array, 0, buffer, offset + 4, array.length);
+        return offset + 4 + array.length;
+    }
+}
@@ -11,11 +11,17 @@ import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.jce.ECNamedCurveTable;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.bouncycastle.math.ec.WNafUtil;
+import models.Transaction;
 import persistence.AccountPersistence;
 
 import java.math.BigInteger;
 import java.security.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Helper class to calculate and validate signatures
@@ -33,7 +39,16 @@ public class SignatureUtil {
     //Signature domain
     private static final ECDomainParameters DOMAIN =
             new ECDomainParameters(CURVE.getCurve(), CURVE.getG(), CURVE.getN(), CURVE.getH());
-
+    //Maximum number of decoded public keys that are kept
+    private static final int PUBLIC_KEY_CACHE_SIZE = Integer.getInteger("signature.publicKeyCacheSize", 4096);
+    //Window width of the multiplication tables (the verification multiplies with scalars of half the curve order size)
+    private static final int PRECOMPUTATION_WIDTH = WNafUtil.getWindowSize(CURVE.getN().bitLength() / 2);
+    //Decoded public keys per sender address, the points keep their multiplication tables
+    private static final StripedLruCache<HashKey, ECPublicKeyParameters> publicKeys = new StripedLruCache<>(PUBLIC_KEY_CACHE_SIZE);
+    //Number of threads that verify the signatures of a batch
+    private static volatile int verificationThreads = Integer.getInteger("verification.threads", Runtime.getRuntime().availableProcessors());
+    //Thread pool for the batch verification, created on first use
+    private static volatile ExecutorService verificationPool;
 
     /**
      * Verifies a given hash and signature depending on the public key
@@ -44,12 +59,23 @@ public class SignatureUtil {
      * @return Boolean if the given hash and signature is valid or nit
      */
     public static boolean verify(byte[] hash, byte[] signature, byte[] publicKey) {
+        return verify(new ECDSASigner(), hash, signature, publicKey);
+    }
+
+    /**
+     * Verifies a given hash and signature depending on the public key with the given signer
+     *
+     * @param signer    Signer to verify with (initialized with the public key)
+     * @param hash      Hash to verify
+     * @param signature Signature to verify
+     * @param publicKey Public key
+     * @return Boolean if the given hash and signature is valid or not
+     */
+    private static boolean verify(ECDSASigner signer, byte[] hash, byte[] signature, byte[] publicKey) {
         boolean result;
 
         try (ASN1InputStream asn1 = new ASN1InputStream(signature)) {
-            ECDSASigner signer = new ECDSASigner();
-
-            signer.init(false, new ECPublicKeyParameters(CURVE.getCurve().decodePoint(publicKey), DOMAIN));
+            signer.init(false, getPublicKeyParameters(publicKey));
 
             DLSequence seq = (DLSequence) asn1.readObject();
             BigInteger r = ((ASN1Integer) seq.getObjectAt(0)).getPositiveValue();
@@ -62,6 +88,152 @@ public class SignatureUtil {
         return result;
     }
 
+    /**
+     * Verifies the signatures of many transactions.
+     * The transactions are split into one partition per verification thread, every partition is verified with its own
+     * signer and the cached public keys.
+     *
+     * @param transactions Transactions to verify
+     * @return Result per transaction (same order as the transactions)
+     */
+    public static boolean[] verifyBatch(List<Transaction> transactions) {
+        return verifyBatch(transactions, false);
+    }
+
+    /**
+     * Verifies the signatures of many transactions
+     *
+     * @param transactions       Transactions to verify
+     * @param stopAtFirstFailure Stops all partitions at the first invalid signature (the remaining results stay false)
+     * @return Result per transaction (same order as the transactions)
+     */
+    public static boolean[] verifyBatch(List<Transaction> transactions, boolean stopAtFirstFailure) {
+        boolean[] results = new boolean[transactions.size()];
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int partitionCount = Math.min(verificationThreads, transactions.size());
+
+        if (partitionCount < 2) {
+            verifyPartition(transactions, 0, transactions.size(), results, stopAtFirstFailure ? failed : null);
+            return results;
+        }
+
+        ExecutorService pool = getVerificationPool();
+        List<Future<?>> futures = new ArrayList<>();
+        int partitionSize = (transactions.size() + partitionCount - 1) / partitionCount;
+
+        for (int start = 0; start < transactions.size(); start += partitionSize) {
+            int from = start;
+            int to = Math.min(start + partitionSize, transactions.size());
+            futures.add(pool.submit(() -> verifyPartition(transactions, from, to, results, stopAtFirstFailure ? failed : null)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            Arrays.fill(results, false);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Arrays.fill(results, false);
+        }
+        return results;
+    }
+
+    /**
+     * Verifies a partition of a batch with one signer
+     *
+     * @param transactions Transactions of the batch
+     * @param from         First index of the partition
+     * @param to           Index behind the partition
+     * @param results      Results of the batch
+     * @param failed       Flag that stops the verification at the first invalid signature (null to verify everything)
+     */
+    private static void verifyPartition(List<Transaction> transactions, int from, int to, boolean[] results, AtomicBoolean failed) {
+        ECDSASigner signer = new ECDSASigner();
+
+        for (int i = from; i < to; i++) {
+            if (failed != null && failed.get()) {
+                return;
+            }
+            Transaction transaction = transactions.get(i);
+            results[i] = transaction.getSignature() != null && transaction.getSender() != null &&
+                    verify(signer, transaction.getSigningPayload(),
+                            transaction.getSignature(), transaction.getSender());
+
+            if (!results[i] && failed != null) {
+                failed.set(true);
+            }
+        }
+    }
+
+    /**
+     * Returns the thread pool for the batch verification and creates it if necessary
+     *
+     * @return Thread pool for the batch verification
+     */
+    private static ExecutorService getVerificationPool() {
+        if (verificationPool == null) {
+            synchronized (SignatureUtil.class) {
+                if (verificationPool == null) {
+                    verificationPool = Executors.newFixedThreadPool(verificationThreads, runnable -> {
+                        Thread thread = new Thread(runnable, "verification-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return verificationPool;
+    }
+
+    /**
+     * Returns the number of threads that verify the signatures of a batch
+     *
+     * @return Number of verification threads
+     */
+    public static int getVerificationThreads() {
+        return verificationThreads;
+    }
+
+    /**
+     * Sets the number of threads that verify the signatures of a batch (replaces the current thread pool)
+     *
+     * @param verificationThreads Number of verification threads
+     */
+    public static synchronized void setVerificationThreads(int verificationThreads) {
+        if (verificationThreads < 1) {
+            throw new IllegalArgumentException("At least one verification thread is required");
+        }
+        SignatureUtil.verificationThreads = verificationThreads;
+        if (verificationPool != null) {
+            verificationPool.shutdown();
+            verificationPool = null;
+        }
+    }
+
+    /**
+     * Returns the decoded public key of a sender.
+     * Decoded keys are cached, the multiplication table of the point is calculated once and reused by every
+     * verification with this key.
+     *
+     * @param publicKey Encoded public key (sender address)
+     * @return Decoded public key
+     */
+    static ECPublicKeyParameters getPublicKeyParameters(byte[] publicKey) {
+        HashKey key = HashKey.of(publicKey);
+        ECPublicKeyParameters parameters = publicKeys.get(key);
+
+        if (parameters == null) {
+            parameters = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(publicKey), DOMAIN);
+            WNafUtil.precompute(parameters.getQ(), PRECOMPUTATION_WIDTH, true);
+            parameters = publicKeys.putIfAbsent(key, parameters);
+        }
+        return parameters;
+    }
+
     /**
      * Generates a new public/private key pair
      *
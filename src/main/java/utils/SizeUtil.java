@@ -56,7 +56,7 @@ public final class SizeUtil {
      * @param transaction The transaction object.
      * @return The size of the given transaction object.
      */
-    private static int calculateTransactionSize(Transaction transaction) {
+    public static int calculateTransactionSize(Transaction transaction) {
         return TRANSACTION_META_DATA_SIZE_IN_BYTES + transaction.getSignature().length;
     }
 
@@ -0,0 +1,111 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache that is split into stripes with their own lock.
+ * Every stripe evicts its least recently used entry when it is full, so threads that look up different keys rarely
+ * wait for each other and the whole cache never holds more than its capacity.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class StripedLruCache<K, V> {
+
+    //Maximum number of stripes (a power of two)
+    private static final int STRIPES = 16;
+
+    //Maximum number of entries
+    private final int capacity;
+    //Entries in access order, split by the hash code of the key
+    private final Map<K, V>[] stripes;
+
+    /**
+     * Creates a new empty cache
+     *
+     * @param capacity Maximum number of entries
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the cache must be positive");
+        }
+        this.capacity = capacity;
+        //Small caches get fewer stripes so that every stripe can hold at least one entry
+        this.stripes = new Map[Math.min(STRIPES, Integer.highestOneBit(capacity))];
+
+        for (int i = 0; i < stripes.length; i++) {
+            int stripeCapacity = capacity / stripes.length + ((i < capacity % stripes.length) ? 1 : 0);
+            stripes[i] = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > stripeCapacity;
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns the cached value of a key
+     *
+     * @param key Key
+     * @return Cached value or null if the key is not cached
+     */
+    public V get(K key) {
+        Map<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Caches a value if the key is not cached yet
+     *
+     * @param key   Key
+     * @param value Value to cache
+     * @return The value that is cached for the key (the already cached value or the given one)
+     */
+    public V putIfAbsent(K key, V value) {
+        Map<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            V existing = stripe.putIfAbsent(key, value);
+            return (existing == null) ? value : existing;
+        }
+    }
+
+    /**
+     * Returns the number of cached entries
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Map<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of cached entries
+     *
+     * @return Capacity of the cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the stripe of a key
+     *
+     * @param key Key
+     * @return Stripe that holds the key
+     */
+    private Map<K, V> stripe(K key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+}
@@ -4,11 +4,12 @@ import accounts.Account;
 import logic.Blockchain;
 import logic.DependencyManager;
 import models.Block;
+import models.BlockHeader;
 import models.Transaction;
 import org.apache.log4j.Logger;
-import utils.merkle.MerkleTree;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper class for verification of stuff
@@ -17,6 +18,10 @@ public class VerificationUtil {
 
     //Logger to display additional information
     private static Logger logger = Logger.getLogger(VerificationUtil.class);
+    //Verifies the signatures of a block in parallel if enabled
+    private static volatile boolean parallelVerification = Boolean.parseBoolean(System.getProperty("verification.parallel", "true"));
+    //Signatures that were already verified (e.g. on submission), block verification skips them
+    private static final SignatureCache signatureCache = new SignatureCache(Integer.getInteger("verification.signatureCacheSize", 50000));
 
     /**
      * Verifies a block
@@ -25,21 +30,52 @@ public class VerificationUtil {
      */
     public static boolean verifyBlock(Block block){
         logger.info("Verification: Verify block.");
-        boolean fulfillsDifficulty = DependencyManager.getBlockchain().fulfillsDifficulty(block.getBlockHash());
-        boolean correctVesion = Blockchain.VERSION == block.getBlockHeader().getVersion();
-        boolean transactionVerified = true;
-        boolean merkleTreeVerified = Arrays.equals(block.getBlockHeader().getTransactionListHash(), new MerkleTree(block.getTransactions()).getMerkleTreeRoot());
+        //Signatures are independent of each other, the balance and pending checks stay in block order
+        boolean blockVerified = verifyBlockContent(block);
 
         for(Transaction transaction : block.getTransactions()){
-            transactionVerified = verifyTransaction(transaction);
-
-            if(!transactionVerified){
+            if(!blockVerified){
                 break;
             }
+            blockVerified = verifyBalance(transaction) && verifyPendingTransactions(transaction);
         }
 
-        logger.info("Verification: Block verified? " + (fulfillsDifficulty && correctVesion && transactionVerified &&merkleTreeVerified));
-        return fulfillsDifficulty && correctVesion && transactionVerified &&merkleTreeVerified;
+        logger.info("Verification: Block verified? " + blockVerified);
+        return blockVerified;
+    }
+
+    /**
+     * Verifies the parts of a block that do not depend on the accounts or pending transactions (difficulty, version,
+     * merkle root and signatures). It can run before the block is added, valid signatures are cached and not verified
+     * again by verifyBlock.
+     * @param block Block to verify
+     * @return Boolean if the content of the block is valid or not
+     */
+    public static boolean verifyBlockContent(Block block){
+        if(!verifyBlockHeader(block.getBlockHeader())){
+            return false;
+        }
+        boolean fulfillsDifficulty = DependencyManager.getBlockchain().fulfillsDifficulty(block.getBlockHash());
+        boolean correctVesion = Blockchain.VERSION == block.getBlockHeader().getVersion();
+        boolean merkleTreeVerified = block.hasValidMerkleRoot();
+
+        boolean contentVerified = fulfillsDifficulty && correctVesion && merkleTreeVerified && verifySignatures(block.getTransactions());
+        logger.info("Verification: Block content verified? " + contentVerified);
+        return contentVerified;
+    }
+
+    /**
+     * Verifies that the hashes of a block header fit into its binary encoding. Headers with missing, shorter or longer
+     * hashes are rejected, they can not be hashed.
+     * @param blockHeader Header to verify
+     * @return Boolean if the header is valid or not
+     */
+    public static boolean verifyBlockHeader(BlockHeader blockHeader){
+        boolean headerVerified = blockHeader != null && blockHeader.hasValidHashes();
+        if(!headerVerified){
+            logger.info("Verification: Block header has invalid hashes.");
+        }
+        return headerVerified;
     }
 
     /**
@@ -55,6 +91,98 @@ public class VerificationUtil {
         return signatureVerified && balanceVerified && pendingTransactionsVerified;
     }
 
+    /**
+     * Verifies the signatures of multiple transactions.
+     * In parallel mode the signatures that are not cached are verified as one batch which stops at the first invalid
+     * signature.
+     * @param transactions Transactions to verify
+     * @return Boolean if all signatures are valid or not
+     */
+    public static boolean verifySignatures(List<Transaction> transactions){
+        for(boolean result : verifySignatures(transactions, true)){
+            if(!result){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies the signatures of multiple transactions and returns the result of every transaction
+     * @param transactions Transactions to verify
+     * @return Result per transaction (same order as the transactions)
+     */
+    public static boolean[] verifySignatureBatch(List<Transaction> transactions){
+        return verifySignatures(transactions, false);
+    }
+
+    /**
+     * Verifies the signatures of multiple transactions, cached signatures are not verified again
+     * @param transactions Transactions to verify
+     * @param stopAtFirstFailure Stops at the first invalid signature (the remaining results stay false)
+     * @return Result per transaction (same order as the transactions)
+     */
+    private static boolean[] verifySignatures(List<Transaction> transactions, boolean stopAtFirstFailure){
+        boolean[] results = new boolean[transactions.size()];
+
+        if(!parallelVerification){
+            for(int i = 0; i < transactions.size(); i++){
+                results[i] = verifySignature(transactions.get(i));
+                if(!results[i] && stopAtFirstFailure){
+                    break;
+                }
+            }
+            return results;
+        }
+
+        List<Transaction> uncachedTransactions = new ArrayList<>();
+        List<Integer> uncachedIndexes = new ArrayList<>();
+        for(int i = 0; i < transactions.size(); i++){
+            results[i] = isSignatureCached(transactions.get(i));
+            if(!results[i]){
+                uncachedTransactions.add(transactions.get(i));
+                uncachedIndexes.add(i);
+            }
+        }
+
+        boolean[] batchResults = SignatureUtil.verifyBatch(uncachedTransactions, stopAtFirstFailure);
+        for(int i = 0; i < batchResults.length; i++){
+            Transaction transaction = uncachedTransactions.get(i);
+            results[uncachedIndexes.get(i)] = batchResults[i];
+            if(batchResults[i]){
+                signatureCache.add(transaction.getSigningPayload(), transaction.getSignature(), transaction.getSender());
+            }
+        }
+        logger.info("Verification: Verified " + uncachedTransactions.size() + " of " + transactions.size() + " signatures.");
+        return results;
+    }
+
+    /**
+     * Checks if the signature of a transaction was already verified
+     * @param transaction Transaction to check
+     * @return Boolean if the signature is cached
+     */
+    private static boolean isSignatureCached(Transaction transaction){
+        return transaction.getSignature() != null && transaction.getSender() != null &&
+                signatureCache.contains(transaction.getSigningPayload(), transaction.getSignature(), transaction.getSender());
+    }
+
+    /**
+     * Returns if the signatures of a block are verified in parallel
+     * @return Boolean if the parallel verification is enabled
+     */
+    public static boolean isParallelVerification(){
+        return parallelVerification;
+    }
+
+    /**
+     * Enables or disables the parallel verification of the signatures of a block
+     * @param parallelVerification Boolean if the parallel verification is enabled
+     */
+    public static void setParallelVerification(boolean parallelVerification){
+        VerificationUtil.parallelVerification = parallelVerification;
+    }
+
     /**
      * Verifies the signature of a transaction
      * @param transaction Transaction to verify
@@ -64,9 +192,19 @@ public class VerificationUtil {
         logger.info("Verification: Verify signature.");
         boolean result;
         try{
-            logger.debug(transaction.asJSONString());
-            result = SignatureUtil.verify(transaction.asJSONString().getBytes("UTF-8"),
-                    transaction.getSignature(), transaction.getSender());
+            if(logger.isDebugEnabled()){
+                logger.debug(transaction.asJSONString());
+            }
+            byte[] hash = transaction.getSigningPayload();
+
+            if(signatureCache.contains(hash, transaction.getSignature(), transaction.getSender())){
+                result = true;
+            } else{
+                result = SignatureUtil.verify(hash, transaction.getSignature(), transaction.getSender());
+                if(result){
+                    signatureCache.add(hash, transaction.getSignature(), transaction.getSender());
+                }
+            }
             logger.debug("SignatureVerification: " + result);
         } catch(Exception e){
             result = false;
@@ -75,6 +213,14 @@ public class VerificationUtil {
         return result;
     }
 
+    /**
+     * Returns the cache of verified signatures
+     * @return Signature cache
+     */
+    public static SignatureCache getSignatureCache(){
+        return signatureCache;
+    }
+
     /**
      * Verifies a transaction to the balance of an account (sender account needs t have enough coins and doesnt go below zero)
      * @param transaction Transaction to verify
@@ -4,128 +4,238 @@ import api.converters.HashListConverter;
 import com.owlike.genson.annotation.JsonConverter;
 import models.Transaction;
 import org.apache.log4j.Logger;
-import org.bouncycastle.util.Arrays;
+import utils.HashKey;
 import utils.SHA3Util;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
- * A basic implementation of a merkle tree
+ * Merkle tree over the transaction Ids of a list of transactions.
+ * The hashes are stored level by level in contiguous byte Arrays (the leaves first, the root last). The path of a
+ * transaction is found with an index lookup and a walk from the leaf to the root. Transactions can be appended, then
+ * only the right edge of the tree is rehashed. Levels with at least parallelThreshold nodes are hashed in parallel.
+ * Appending is not thread-safe, a tree that is not changed anymore can be read by multiple threads.
  */
 public class MerkleTree {
 
     //Logger to display additional information
     private static Logger logger = Logger.getLogger(MerkleTree.class);
-    //The root element of the merkle tree
-    private MerkleTreeElement root;
+    //Size of the hashes of the inner nodes
+    private static final int HASH_SIZE = 32;
+    //Root of a tree without transactions (hash of an empty transaction list)
+    private static final byte[] EMPTY_ROOT = SHA3Util.hash256((Serializable) new ArrayList<Transaction>());
+    //Level size from which on the parents of a level are hashed in parallel, can be set with -Dmerkle.parallelThreshold=<size>
+    private static volatile int parallelThreshold = Integer.getInteger("merkle.parallelThreshold", 1024);
+
+    //Hashes of every level, the leaves first and the root last
+    private byte[][] levels;
+    //Number of nodes of every level
+    private int[] levelSizes;
+    //Size of the leaf hashes (the transaction Ids)
+    private int leafSize;
+    //Index of the first leaf of every transaction Id
+    private Map<HashKey, Integer> leafIndex;
+
+    /**
+     * Creates a new empty merkle tree
+     */
+    public MerkleTree() {
+        levels = new byte[0][];
+        levelSizes = new int[0];
+        leafIndex = new HashMap<>();
+    }
 
     /**
      * Creates a new merkle tree with a list of transactions
      *
      * @param transactions List of transactions to store in the merkle tree
+     * @throws IllegalArgumentException if the transaction Ids differ in size
      */
     public MerkleTree(List<Transaction> transactions) {
-        initMerkleTree(transactions);
+        this();
+        if (transactions.isEmpty()) {
+            return;
+        }
+        leafSize = transactions.get(0).getTxId().length;
+        initLevels(transactions.size());
+
+        for (int i = 0; i < transactions.size(); i++) {
+            setLeaf(i, transactions.get(i).getTxId());
+        }
+
+        for (int level = 0; level < levels.length - 1; level++) {
+            int parentLevel = level;
+            if (levelSizes[level] >= parallelThreshold) {
+                IntStream.range(0, levelSizes[level + 1]).parallel().forEach(index -> hashParent(parentLevel, index));
+            } else {
+                for (int index = 0; index < levelSizes[level + 1]; index++) {
+                    hashParent(level, index);
+                }
+            }
+        }
+
+        logger.debug("MerkleTree: Finished init: " + SHA3Util.digestToHex(getMerkleTreeRoot()));
     }
 
     /**
-     * Setting up the merkle tree.
+     * Checks if a merkle tree can be built over the given transactions (all transaction Ids have the same size)
      *
-     * @param transactions List of transactions to store in the tree.
+     * @param transactions Transactions to check
+     * @return Boolean if the transaction Ids have the same size or not
      */
-    private void initMerkleTree(List<Transaction> transactions) {
-        logger.debug("MerkleTree: Init.");
+    public static boolean hasUniformTxIds(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return true;
+        }
+        int leafSize = transactions.get(0).getTxId().length;
+        for (Transaction transaction : transactions) {
+            if (transaction.getTxId().length != leafSize) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        List<MerkleTreeElement> elements = new ArrayList<>();
+    /**
+     * Calculates the size of every level and allocates the hashes
+     *
+     * @param leafCount Number of leaves
+     */
+    private void initLevels(int leafCount) {
+        List<Integer> sizes = new ArrayList<>();
+        for (int size = leafCount; ; size = (size + 1) / 2) {
+            sizes.add(size);
+            if (size == 1) {
+                break;
+            }
+        }
 
-        for (Transaction transaction : transactions) {
-            logger.debug("MerkleTree: Adding transactions.");
-            elements.add(new MerkleTreeElement(transaction.getTxId()));
+        levels = new byte[sizes.size()][];
+        levelSizes = new int[sizes.size()];
+        for (int level = 0; level < levels.length; level++) {
+            levelSizes[level] = sizes.get(level);
+            levels[level] = new byte[levelSizes[level] * nodeSize(level)];
         }
+    }
 
-        while (elements.size() > 1) {
-            logger.debug("MerkleTree: Building next layer.");
-            elements = getNextLayer(elements);
+    /**
+     * Appends a transaction as the new rightmost leaf and rehashes the path to the root
+     *
+     * @param transaction Transaction to append
+     * @throws IllegalArgumentException if the transaction Id differs in size from the ones in the tree
+     */
+    public void append(Transaction transaction) {
+        if (levels.length == 0) {
+            leafSize = transaction.getTxId().length;
+            addLevel();
+        } else if (transaction.getTxId().length != leafSize) {
+            throw new IllegalArgumentException("Transaction ids of a merkle tree must have the same size");
         }
+        int index = levelSizes[0];
+        grow(0, index + 1);
+        setLeaf(index, transaction.getTxId());
 
-        if (elements.size() == 1) {
-            root = elements.get(0);
-        } else {
-            root = new MerkleTreeElement(SHA3Util.hash256((Serializable) transactions));
+        for (int level = 0; levelSizes[level] > 1; level++) {
+            if (level + 1 == levels.length) {
+                addLevel();
+            }
+            index /= 2;
+            grow(level + 1, (levelSizes[level] + 1) / 2);
+            hashParent(level, index);
         }
+    }
 
-        logger.debug("MerkleTree: Finished init: " + SHA3Util.digestToHex(root.getHash()));
+    /**
+     * Adds an empty level on top of the tree
+     */
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levelSizes = Arrays.copyOf(levelSizes, levelSizes.length + 1);
+        levels[levels.length - 1] = new byte[nodeSize(levels.length - 1)];
     }
 
     /**
-     * Returns the next layer of the merkle tree to a list of elements.
+     * Sets the number of nodes of a level and enlarges its hashes if they are too small
      *
-     * @param elements Elements of which you wanna get the next layer.
-     * @return Returns the next layer of the parameter elements.
+     * @param level Level to grow
+     * @param size  New number of nodes
      */
-    private List<MerkleTreeElement> getNextLayer(List<MerkleTreeElement> elements) {
-        List<MerkleTreeElement> nextLayer = new ArrayList<>();
-
-        for (int i = 0; i < elements.size(); i += 2) {
-            MerkleTreeElement left = elements.get(i);
-            MerkleTreeElement right = (i == elements.size() - 1) ? elements.get(i) : elements.get(i + 1);
-            byte[] nextHash = SHA3Util.hash256(Arrays.concatenate(left.getHash(), right.getHash()));
-            MerkleTreeElement parent = new MerkleTreeElement(left, right, nextHash);
-            left.setParent(parent);
-            right.setParent(parent);
+    private void grow(int level, int size) {
+        int length = size * nodeSize(level);
+        if (levels[level].length < length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(length, levels[level].length * 2));
+        }
+        levelSizes[level] = size;
+    }
 
-            nextLayer.add(parent);
+    /**
+     * Stores a transaction Id as a leaf
+     *
+     * @param index Index of the leaf
+     * @param txId  Transaction Id
+     * @throws IllegalArgumentException if the transaction Id differs in size from the ones in the tree
+     */
+    private void setLeaf(int index, byte[] txId) {
+        if (txId.length != leafSize) {
+            throw new IllegalArgumentException("Transaction ids of a merkle tree must have the same size");
         }
+        System.arraycopy(txId, 0, levels[0], index * leafSize, leafSize);
+        leafIndex.putIfAbsent(HashKey.of(txId), index);
+    }
 
-        return nextLayer;
+    /**
+     * Hashes the node at the given index of the next level from its two children (the left child twice if it is the
+     * last node of a level with an odd size)
+     *
+     * @param level Level of the children
+     * @param index Index of the parent in the next level
+     */
+    private void hashParent(int level, int index) {
+        int size = nodeSize(level);
+        int left = index * 2;
+        int right = (left == levelSizes[level] - 1) ? left : left + 1;
+
+        byte[] concatenated = new byte[2 * size];
+        System.arraycopy(levels[level], left * size, concatenated, 0, size);
+        System.arraycopy(levels[level], right * size, concatenated, size, size);
+        System.arraycopy(SHA3Util.hash256(concatenated), 0, levels[level + 1], index * HASH_SIZE, HASH_SIZE);
     }
 
     /**
-     * Returns a list of the hashes of the child elements to the given hash element
+     * Returns the hashes on the path from the given transaction hash to the root (leaf first, root last)
      *
-     * @param hash Given hash element
-     * @return List with the hashes of the child elements
+     * @param hash Hash of the transaction
+     * @return List with the hashes of the path, only the root if the transaction is not part of the tree
      */
     @JsonConverter(HashListConverter.class)
     public List<byte[]> getHashesForTransactionHash(byte[] hash) {
-        List<byte[]> hashList = new CopyOnWriteArrayList<>();
-
-        checkChild(root, hash, hashList);
+        List<byte[]> hashList = new ArrayList<>();
+        Integer index = leafIndex.get(HashKey.of(hash));
 
-        hashList.add(root.getHash());
+        if (index != null) {
+            for (int level = 0; level < levels.length - 1; level++) {
+                hashList.add(getHash(level, index));
+                index /= 2;
+            }
+        }
+        hashList.add(getMerkleTreeRoot());
 
         return hashList;
     }
 
     /**
-     * Checks a child element
+     * Returns the number of leaves
      *
-     * @param child    Child element to check
-     * @param hash     Hash of the child element
-     * @param hashList List of child hashes
-     * @return Boolean if the child is valid or not
+     * @return Number of transactions in the tree
      */
-    private boolean checkChild(MerkleTreeElement child, byte[] hash, List<byte[]> hashList) {
-        boolean result = java.util.Arrays.equals(child.getHash(), hash);
-
-        if (child.hasChilds()) {
-            MerkleTreeElement left = child.getLeft();
-            MerkleTreeElement right = child.getRight();
-
-            if (checkChild(left, hash, hashList)) {
-                result = true;
-                hashList.add(left.getHash());
-            }
-
-            if (checkChild(right, hash, hashList)) {
-                result = true;
-                hashList.add(right.getHash());
-            }
-        }
-        return result;
+    public int size() {
+        return (levels.length == 0) ? 0 : levelSizes[0];
     }
 
     /**
@@ -134,6 +244,49 @@ public class MerkleTree {
      * @return Hash of the root element.
      */
     public byte[] getMerkleTreeRoot() {
-        return root.getHash();
+        if (levels.length == 0) {
+            return EMPTY_ROOT.clone();
+        }
+        return getHash(levels.length - 1, 0);
+    }
+
+    /**
+     * Returns a copy of the hash of a node
+     *
+     * @param level Level of the node (0 = leaves)
+     * @param index Index of the node inside its level
+     * @return Hash of the node
+     */
+    private byte[] getHash(int level, int index) {
+        int size = nodeSize(level);
+        return Arrays.copyOfRange(levels[level], index * size, (index + 1) * size);
+    }
+
+    /**
+     * Returns the size of the hashes of a level
+     *
+     * @param level Level
+     * @return Size of the hashes in bytes
+     */
+    private int nodeSize(int level) {
+        return (level == 0) ? leafSize : HASH_SIZE;
+    }
+
+    /**
+     * Returns the level size from which on the levels are hashed in parallel
+     *
+     * @return Parallel threshold
+     */
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the level size from which on the levels are hashed in parallel
+     *
+     * @param parallelThreshold Parallel threshold
+     */
+    public static void setParallelThreshold(int parallelThreshold) {
+        MerkleTree.parallelThreshold = parallelThreshold;
     }
 }
@@ -1,13 +1,354 @@
 package logic;
 
+import models.Block;
+import models.BlockHeader;
+import models.Chain;
+import models.Transaction;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
+import org.junit.Assert;
 import org.junit.Test;
+import utils.SHA3Util;
+import utils.SignatureUtil;
+import utils.VerificationUtil;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class BlockchainTests {
 
+    private static final byte[] COINBASE = SignatureUtil.getCoinbaseFromPublicKey(SignatureUtil.generateKeyPair());
+    private static final X9ECParameters CURVE = SECNamedCurves.getByName("secp256k1");
+    private static final ECDomainParameters DOMAIN =
+            new ECDomainParameters(CURVE.getCurve(), CURVE.getG(), CURVE.getN(), CURVE.getH());
+
     @Test
     public void testBlockchain(){
         Blockchain blockchain = new Blockchain();
 
         System.out.println(0x4000);
     }
+
+    @Test
+    public void testAdoptGenesisHeader(){
+        Blockchain blockchain = new Blockchain();
+        Blockchain network = new Blockchain();
+        BlockHeader genesisHeader = network.getGenesisBlock().getBlockHeader();
+        genesisHeader.setTimestamp(genesisHeader.getTimestamp() - 1000);
+
+        Assert.assertTrue(blockchain.adoptGenesisHeader(genesisHeader));
+        Assert.assertArrayEquals(network.getGenesisBlock().getBlockHash(), blockchain.getPreviousHash());
+        Assert.assertSame(blockchain.getGenesisBlock(), blockchain.getBlockByHash(network.getGenesisBlock().getBlockHash()));
+    }
+
+    @Test
+    public void testInvalidGenesisHeaderIsRejected(){
+        Blockchain blockchain = new Blockchain();
+        byte[] ownGenesisHash = blockchain.getGenesisBlock().getBlockHash();
+
+        BlockHeader otherTransactions = networkGenesisHeader();
+        otherTransactions.setTransactionListHash(SHA3Util.hash256("transactions".getBytes()));
+        BlockHeader otherVersion = networkGenesisHeader();
+        otherVersion.setVersion(Blockchain.VERSION + 1);
+        BlockHeader futureTimestamp = networkGenesisHeader();
+        futureTimestamp.setTimestamp(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+        BlockHeader otherNonce = networkGenesisHeader();
+        otherNonce.setNonce(42);
+
+        for (BlockHeader header : new BlockHeader[]{otherTransactions, otherVersion, futureTimestamp, otherNonce}) {
+            Assert.assertFalse(blockchain.adoptGenesisHeader(header));
+            Assert.assertArrayEquals(ownGenesisHash, blockchain.getGenesisBlock().getBlockHash());
+        }
+    }
+
+    @Test
+    public void testOnlyConfiguredGenesisHeaderIsAdopted(){
+        BlockHeader genesisHeader = networkGenesisHeader();
+        BlockHeader otherHeader = networkGenesisHeader();
+        otherHeader.setTimestamp(otherHeader.getTimestamp() - 1000);
+
+        try {
+            Blockchain.setGenesisHash(SHA3Util.digestToHex(genesisHeader.asHash()));
+            Blockchain blockchain = new Blockchain();
+
+            Assert.assertFalse(blockchain.adoptGenesisHeader(otherHeader));
+            Assert.assertTrue(blockchain.adoptGenesisHeader(genesisHeader));
+            Assert.assertArrayEquals(genesisHeader.asHash(), blockchain.getPreviousHash());
+        } finally {
+            Blockchain.setGenesisHash(null);
+        }
+    }
+
+    private static BlockHeader networkGenesisHeader() {
+        BlockHeader genesisHeader = new Blockchain().getGenesisBlock().getBlockHeader();
+        genesisHeader.setTimestamp(genesisHeader.getTimestamp() - 1000);
+        return genesisHeader;
+    }
+
+    @Test
+    public void testLatestBlocksByHeight(){
+        Blockchain blockchain = createBlockchain();
+        Block tip = addBlocks(blockchain, blockchain.getGenesisBlock(), 5, 0);
+
+        List<Block> blocks = blockchain.getLatestBlocks(3, 1);
+        Assert.assertEquals(3, blocks.size());
+        Assert.assertSame(blockchain.getChain().get(4), blocks.get(0));
+        Assert.assertSame(blockchain.getChain().get(2), blocks.get(2));
+
+        Assert.assertSame(tip, blockchain.getLatestBlocks(1, 0).get(0));
+        Assert.assertEquals(2, blockchain.getLatestBlocks(10, 4).size());
+        Assert.assertTrue(blockchain.getLatestBlocks(10, 6).isEmpty());
+    }
+
+    @Test
+    public void testChildOfBlockWithFork(){
+        Blockchain blockchain = createBlockchain();
+        Block forkPoint = addBlocks(blockchain, blockchain.getGenesisBlock(), 2, 0);
+        Block mainTip = addBlocks(blockchain, forkPoint, 2, 0);
+        Block mainChild = blockchain.getChildOfBlock(forkPoint);
+
+        Block forkChild = addBlocks(blockchain, forkPoint, 1, 1000);
+        Assert.assertSame(mainChild, blockchain.getChildOfBlock(forkPoint));
+        Assert.assertNull(blockchain.getChildOfBlock(forkChild));
+        Assert.assertNull(blockchain.getChildOfBlock(mainTip));
+
+        //The fork gets longer than the main chain and becomes the main chain
+        Block forkTip = addBlocks(blockchain, forkChild, 2, 1000);
+        Assert.assertSame(forkTip, blockchain.getLatestBlock());
+        Assert.assertSame(forkChild, blockchain.getChildOfBlock(forkPoint));
+        Assert.assertSame(forkChild, blockchain.getLatestBlocks(1, 2).get(0));
+        Assert.assertNull(blockchain.getChildOfBlock(mainTip));
+        Assert.assertSame(mainTip, blockchain.getChildOfBlock(mainChild));
+    }
+
+    @Test
+    public void testChainSwitchToForkWithMoreWork(){
+        Blockchain blockchain = createBlockchain();
+        Block forkPoint = addBlocks(blockchain, blockchain.getGenesisBlock(), 1, 0);
+        Block mainTip = addBlocks(blockchain, forkPoint, 3, 0);
+        Block forkTip = addBlocks(blockchain, forkPoint, 4, 1000);
+
+        Assert.assertSame(forkTip, blockchain.getLatestBlock());
+        Assert.assertEquals(6, blockchain.size());
+        Assert.assertEquals(2, blockchain.getChainCount());
+        for (int height = 1; height < blockchain.size(); height++) {
+            Assert.assertArrayEquals(blockchain.getChain().get(height - 1).getBlockHash(),
+                    blockchain.getChain().get(height).getBlockHeader().getPreviousHash());
+        }
+
+        //The previous main chain is still available as alternative chain
+        List<Chain> altChains = blockchain.getAltChains();
+        Assert.assertEquals(2, altChains.size());
+        Assert.assertSame(blockchain.getChain(), altChains.get(0));
+        Assert.assertSame(mainTip, altChains.get(1).getLast());
+        Assert.assertSame(forkPoint, altChains.get(1).get(1));
+
+        //A known block does not create another chain
+        blockchain.addBlock(mainTip);
+        Assert.assertEquals(2, blockchain.getChainCount());
+        Assert.assertSame(forkTip, blockchain.getLatestBlock());
+    }
+
+    @Test
+    public void testPruneAltChainsBehindBestBlock(){
+        int pruneDepth = Blockchain.getPruneDepth();
+        Blockchain.setPruneDepth(3);
+        try {
+            Blockchain blockchain = createBlockchain();
+            Block forkPoint = addBlocks(blockchain, blockchain.getGenesisBlock(), 2, 0);
+            addBlocks(blockchain, forkPoint, 3, 0);
+            Block forkBlock = addBlocks(blockchain, forkPoint, 1, 1000);
+            Block forkTip = addBlocks(blockchain, forkBlock, 1, 1000);
+            Block otherForkTip = addBlocks(blockchain, forkBlock, 1, 2000);
+            Assert.assertEquals(3, blockchain.getChainCount());
+
+            //Four blocks behind the best block, the forks are pruned back to the fork point
+            addBlocks(blockchain, blockchain.getLatestBlock(), 3, 0);
+            Assert.assertEquals(1, blockchain.getChainCount());
+            Assert.assertNull(blockchain.getBlockByHash(forkTip.getBlockHash()));
+            Assert.assertNull(blockchain.getBlockByHash(otherForkTip.getBlockHash()));
+            Assert.assertSame(forkPoint, blockchain.getBlockByHash(forkPoint.getBlockHash()));
+
+            Map<String, Long> metrics = blockchain.getPruningMetrics();
+            Assert.assertEquals(Long.valueOf(2), metrics.get("prunedChains"));
+            Assert.assertEquals(Long.valueOf(3), metrics.get("prunedBlocks"));
+            Assert.assertEquals(Long.valueOf(9), metrics.get("blocks"));
+            Assert.assertTrue(metrics.get("prunedBytes") > 0);
+        } finally {
+            Blockchain.setPruneDepth(pruneDepth);
+        }
+    }
+
+    @Test
+    public void testSharedTransactionResolvesAfterPruningItsBlock() throws Exception {
+        int pruneDepth = Blockchain.getPruneDepth();
+        Blockchain.setPruneDepth(2);
+        try {
+            Blockchain blockchain = createBlockchain();
+            KeyPair keyPair = SignatureUtil.generateKeyPair();
+            DependencyManager.getAccountStorage().getAccount(SignatureUtil.getCoinbaseFromPublicKey(keyPair)).addBalance(1e12);
+
+            Block forkPoint = addBlocks(blockchain, blockchain.getGenesisBlock(), 1, 0);
+            Block mainBlock = addBlocks(blockchain, forkPoint, 1, 0);
+
+            //The fork block is cached first, so its instance of the transaction is the cached one
+            Block forkBlock = addBlock(blockchain, forkPoint, signedTransaction(keyPair), 1000);
+            Block sharingBlock = addBlock(blockchain, mainBlock, signedTransaction(keyPair), 0);
+            byte[] txId = sharingBlock.getTransactions().get(0).getTxId();
+            Assert.assertEquals(2, blockchain.getChainCount());
+
+            addBlocks(blockchain, sharingBlock, 2, 0);
+            Assert.assertEquals(1, blockchain.getChainCount());
+            Assert.assertNull(blockchain.getBlockByHash(forkBlock.getBlockHash()));
+
+            Transaction transaction = blockchain.getTransactionByHash(txId);
+            Assert.assertNotNull(transaction);
+            Block block = blockchain.getBlockByHash(transaction.getBlockId());
+            Assert.assertSame(sharingBlock, block);
+            Assert.assertNotNull(block.getMerkleTree().getHashesForTransactionHash(transaction.getTxId()));
+        } finally {
+            Blockchain.setPruneDepth(pruneDepth);
+        }
+    }
+
+    @Test
+    public void testKnownAndOrphanBlocksAreNotVerified() throws Exception {
+        Blockchain blockchain = createBlockchain();
+        KeyPair keyPair = SignatureUtil.generateKeyPair();
+        DependencyManager.getAccountStorage().getAccount(SignatureUtil.getCoinbaseFromPublicKey(keyPair)).addBalance(1e12);
+        VerificationUtil.getSignatureCache().clear();
+
+        //Verified signatures are cached, so the cache shows if a block was verified
+        Block block = addBlock(blockchain, blockchain.getGenesisBlock(), signedTransaction(keyPair), 0);
+        Assert.assertSame(block, blockchain.getLatestBlock());
+        Assert.assertEquals(1, VerificationUtil.getSignatureCache().size());
+
+        VerificationUtil.getSignatureCache().clear();
+        blockchain.addBlock(block);
+        Block orphan = addBlock(blockchain, new Block(SHA3Util.hash256("unknown".getBytes())), signedTransaction(keyPair), 0);
+        Assert.assertNull(blockchain.getBlockByHash(orphan.getBlockHash()));
+        Assert.assertEquals(2, blockchain.size());
+        Assert.assertEquals(0, VerificationUtil.getSignatureCache().size());
+    }
+
+    @Test
+    public void testForkChoiceDoesNotDependOnCurrentDifficulty(){
+        Blockchain blockchain = createBlockchain();
+        Block mainTip = addBlocks(blockchain, blockchain.getGenesisBlock(), 3, 0);
+
+        //Blocks mined with a higher difficulty do not count more than the blocks received before
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(254).negate());
+        Block forkTip = blockchain.getGenesisBlock();
+        for (int i = 0; i < 3; i++) {
+            forkTip = addMinedBlock(blockchain, forkTip, 1000);
+        }
+        Assert.assertSame(mainTip, blockchain.getLatestBlock());
+        Assert.assertEquals(2, blockchain.getChainCount());
+
+        forkTip = addMinedBlock(blockchain, forkTip, 1000);
+        Assert.assertSame(forkTip, blockchain.getLatestBlock());
+        Assert.assertEquals(5, blockchain.size());
+    }
+
+    /**
+     * Creates a blockchain that accepts every block hash and injects it as the blockchain of the node
+     *
+     * @return Blockchain
+     */
+    private Blockchain createBlockchain(){
+        Blockchain blockchain = new Blockchain();
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(256));
+        DependencyManager.injectBlockchain(blockchain);
+        return blockchain;
+    }
+
+    /**
+     * Adds empty blocks on top of a block
+     *
+     * @param blockchain Blockchain to add the blocks to
+     * @param parent     Block to build on
+     * @param count      Number of blocks
+     * @param timeShift  Shift of the timestamps, separates the blocks of different forks
+     * @return Last added block
+     */
+    private Block addBlocks(Blockchain blockchain, Block parent, int count, long timeShift){
+        Block block = parent;
+        for (int i = 0; i < count; i++) {
+            block = new Block(block.getBlockHash());
+            block.setCoinbase(COINBASE);
+            block.getBlockHeader().setTimestamp(block.getBlockHeader().getTimestamp() + timeShift);
+            blockchain.addBlock(block);
+        }
+        return block;
+    }
+
+    /**
+     * Adds an empty block on top of a block whose hash fulfills the current difficulty of the blockchain
+     *
+     * @param blockchain Blockchain to add the block to
+     * @param parent     Block to build on
+     * @param timeShift  Shift of the timestamp, separates the blocks of different forks
+     * @return Added block
+     */
+    private Block addMinedBlock(Blockchain blockchain, Block parent, long timeShift){
+        Block block = new Block(parent.getBlockHash());
+        block.setCoinbase(COINBASE);
+        block.getBlockHeader().setTimestamp(block.getBlockHeader().getTimestamp() + timeShift);
+        while (!blockchain.fulfillsDifficulty(block.getBlockHash())) {
+            block.incrementNonce();
+        }
+        blockchain.addBlock(block);
+        return block;
+    }
+
+    /**
+     * Adds a block with a single transaction on top of a block
+     *
+     * @param blockchain  Blockchain to add the block to
+     * @param parent      Block to build on
+     * @param transaction Transaction of the block
+     * @param timeShift   Shift of the timestamp, separates the blocks of different forks
+     * @return Added block
+     */
+    private Block addBlock(Blockchain blockchain, Block parent, Transaction transaction, long timeShift){
+        Block block = new Block(new ArrayList<>(Collections.singletonList(transaction)), parent.getBlockHash());
+        block.setCoinbase(COINBASE);
+        block.getBlockHeader().setTimestamp(block.getBlockHeader().getTimestamp() + timeShift);
+        blockchain.addBlock(block);
+        return block;
+    }
+
+    /**
+     * Creates a new instance of the same signed transaction on every call
+     *
+     * @param keyPair Key pair of the sender
+     * @return Signed transaction
+     */
+    private static Transaction signedTransaction(KeyPair keyPair) throws Exception {
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        signer.init(true, new ECPrivateKeyParameters(((BCECPrivateKey) keyPair.getPrivate()).getD(), DOMAIN));
+
+        Transaction transaction = new Transaction(SignatureUtil.getCoinbaseFromPublicKey(keyPair), "receiver".getBytes(), 1.0, 0, 0.1, 10.0);
+        transaction.setTimeStamp(1000L);
+        BigInteger[] signature = signer.generateSignature(transaction.asJSONString().getBytes(StandardCharsets.UTF_8));
+        ASN1EncodableVector vector = new ASN1EncodableVector();
+        vector.add(new ASN1Integer(signature[0]));
+        vector.add(new ASN1Integer(signature[1]));
+        transaction.setSignature(new DERSequence(vector).getEncoded());
+        return transaction;
+    }
 }
@@ -0,0 +1,130 @@
+package logic;
+
+import models.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PendingTransactionsTest {
+
+    private static Transaction transaction(String sender, int nonce, double fee) {
+        return new Transaction(sender.getBytes(), "receiver".getBytes(), 1.0, nonce, fee, 10.0);
+    }
+
+    @Test
+    public void testTransactionsForNextBlockOrderedByFee(){
+        PendingTransactions pendingTransactions = new PendingTransactions();
+        Transaction low = transaction("a", 1, 0.1);
+        Transaction high = transaction("b", 2, 0.3);
+        Transaction middle = transaction("c", 3, 0.2);
+        Transaction middleLater = transaction("d", 4, 0.2);
+
+        pendingTransactions.addPendingTransactions(Arrays.asList(low, middle, high, middleLater));
+
+        List<Transaction> next = pendingTransactions.getTransactionsForNextBlock();
+        Assert.assertEquals(Arrays.asList(high, middle, middleLater, low), next);
+    }
+
+    @Test
+    public void testClearPendingTransactions(){
+        PendingTransactions pendingTransactions = new PendingTransactions();
+        Transaction first = transaction("a", 1, 0.1);
+        Transaction second = transaction("a", 2, 0.2);
+
+        pendingTransactions.addPendingTransactions(Arrays.asList(first, second));
+        pendingTransactions.clearPendingTransaction(second);
+
+        Assert.assertEquals(1, pendingTransactions.size());
+        Assert.assertEquals(Arrays.asList(first), pendingTransactions.getTransactionsForNextBlock());
+
+        pendingTransactions.clearPendingTransactions(Arrays.asList(first, second));
+        Assert.assertFalse(pendingTransactions.pendingTransactionsAvailable());
+    }
+
+    @Test
+    public void testOtherTransactionsOfSender(){
+        PendingTransactions pendingTransactions = new PendingTransactions();
+        Transaction first = transaction("a", 1, 0.1);
+        Transaction second = transaction("a", 2, 0.2);
+        Transaction other = transaction("b", 3, 0.2);
+
+        Assert.assertTrue(pendingTransactions.areThereNoOtherTransactionsFor(first));
+
+        pendingTransactions.addPendingTransaction(first);
+        pendingTransactions.addPendingTransaction(other);
+        Assert.assertTrue(pendingTransactions.areThereNoOtherTransactionsFor(first));
+        Assert.assertFalse(pendingTransactions.areThereNoOtherTransactionsFor(second));
+
+        pendingTransactions.clearPendingTransaction(first);
+        Assert.assertTrue(pendingTransactions.areThereNoOtherTransactionsFor(second));
+    }
+
+    @Test
+    public void testConcurrentAddRemoveAndSnapshot() throws Exception{
+        PendingTransactions pendingTransactions = new PendingTransactions();
+        int threads = 8;
+        int transactionsPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<List<Transaction>> kept = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < transactionsPerThread; i++) {
+                transactions.add(transaction("sender" + t + "_" + (i % 50), i, 0.001 * (i % 97)));
+            }
+            List<Transaction> keep = new ArrayList<>();
+            kept.add(keep);
+
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < transactions.size(); i++) {
+                    Transaction transaction = transactions.get(i);
+                    pendingTransactions.addPendingTransaction(transaction);
+                    if (i % 2 == 0) {
+                        pendingTransactions.clearPendingTransaction(transaction);
+                    } else {
+                        keep.add(transaction);
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> snapshots = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 200; i++) {
+                List<Transaction> snapshot = pendingTransactions.getTransactionsForNextBlock();
+                Assert.assertEquals(snapshot.size(), new HashSet<>(snapshot).size());
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        snapshots.get();
+        executor.shutdown();
+
+        Set<Transaction> expected = new HashSet<>();
+        kept.forEach(expected::addAll);
+
+        Assert.assertEquals(expected.size(), pendingTransactions.size());
+        Assert.assertTrue(expected.containsAll(pendingTransactions.getTransactionsForNextBlock()));
+
+        pendingTransactions.clearPendingTransactions(expected);
+        Assert.assertFalse(pendingTransactions.pendingTransactionsAvailable());
+        Assert.assertTrue(pendingTransactions.getTransactionsForNextBlock().isEmpty());
+        Assert.assertTrue(pendingTransactions.areThereNoOtherTransactionsFor(transaction("sender0_1", 99999, 0.1)));
+    }
+}
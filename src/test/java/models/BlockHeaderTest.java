@@ -0,0 +1,50 @@
+package models;
+
+import org.junit.Assert;
+import org.junit.Test;
+import utils.SHA3Util;
+
+public class BlockHeaderTest {
+
+    @Test
+    public void testEncodingHasFixedLayout(){
+        byte[] previousHash = SHA3Util.hash256("previous".getBytes());
+        byte[] transactionListHash = SHA3Util.hash256("transactions".getBytes());
+        BlockHeader blockHeader = new BlockHeader(1234L, previousHash, transactionListHash);
+        blockHeader.setNonce(0x01020304);
+
+        byte[] encoded = blockHeader.asBytes();
+
+        Assert.assertEquals(BlockHeader.ENCODED_SIZE, encoded.length);
+        Assert.assertEquals(previousHash[0], encoded[12]);
+        Assert.assertEquals(transactionListHash[31], encoded[BlockHeader.NONCE_OFFSET - 1]);
+        Assert.assertEquals(0x04, encoded[BlockHeader.NONCE_OFFSET + 3]);
+    }
+
+    @Test
+    public void testPatchedNonceMatchesHash(){
+        BlockHeader blockHeader = new BlockHeader(1234L, new byte[32], new byte[32]);
+        byte[] encoded = blockHeader.asBytes();
+
+        BlockHeader.writeNonce(encoded, 42);
+        blockHeader.setNonce(42);
+
+        Assert.assertArrayEquals(blockHeader.asHash(), SHA3Util.hash256(encoded));
+    }
+
+    @Test
+    public void testHashesWithWrongSizeAreRejected(){
+        Assert.assertTrue(new BlockHeader(1234L, new byte[32], new byte[32]).hasValidHashes());
+
+        for (byte[] hash : new byte[][]{null, new byte[31], new byte[33]}) {
+            BlockHeader blockHeader = new BlockHeader(1234L, new byte[32], hash);
+            Assert.assertFalse(blockHeader.hasValidHashes());
+            try {
+                blockHeader.asHash();
+                Assert.fail("Header with a hash of the wrong size was hashed");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+}
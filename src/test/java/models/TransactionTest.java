@@ -2,6 +2,11 @@ package models;
 
 import org.junit.Assert;
 import org.junit.Test;
+import utils.SHA3Util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class TransactionTest {
 
@@ -26,4 +31,49 @@ public class TransactionTest {
         Assert.assertEquals(expected, actual);
     }
 
+    @Test
+    public void testTxIdIsCachedUntilMutation(){
+        Transaction transaction = new Transaction("sender".getBytes(), "receiver".getBytes(), 1.0, 1, 0.1, 10.0);
+        byte[] txId = transaction.getTxId();
+
+        Assert.assertEquals(32, txId.length);
+        Assert.assertSame(txId, transaction.getTxId());
+        Assert.assertEquals(SHA3Util.digestToHex(txId), transaction.getTxIdAsString());
+
+        byte[] payload = transaction.getSigningPayload();
+        transaction.setAmount(2.0);
+
+        Assert.assertFalse(Arrays.equals(txId, transaction.getTxId()));
+        Assert.assertArrayEquals(transaction.getTxId(), new Transaction("sender".getBytes(), "receiver".getBytes(), 2.0, 1, 0.1, 10.0).getTxId());
+        Assert.assertFalse(Arrays.equals(payload, transaction.getSigningPayload()));
+        Assert.assertEquals(transaction.asJSONString(), new String(transaction.getSigningPayload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExplicitTxIdIsKept(){
+        Transaction transaction = new Transaction("sender".getBytes(), "receiver".getBytes(), 1.0, 1, 0.1, 10.0);
+        byte[] txId = SHA3Util.hash256("received".getBytes());
+        transaction.setTxId(txId);
+        transaction.setAmount(2.0);
+
+        Assert.assertArrayEquals(txId, transaction.getTxId());
+        Assert.assertEquals(SHA3Util.digestToHex(txId), transaction.getTxIdAsString());
+    }
+
+    @Test
+    public void testTxIdHashesFixedEncoding(){
+        Transaction transaction = new Transaction("ab".getBytes(), "c".getBytes(), 1.5, 7, 0.1, 10.0);
+        ByteBuffer expected = ByteBuffer.allocate(4 + 2 + 4 + 1 + 4 + 8 + 4 + 8 + 8);
+        expected.putInt(2).put("ab".getBytes()).putInt(1).put("c".getBytes()).putInt(-1)
+                .putDouble(1.5).putInt(7).putDouble(0.1).putDouble(10.0);
+
+        Assert.assertArrayEquals(expected.array(), transaction.asBytes());
+        Assert.assertArrayEquals(SHA3Util.hash256(expected.array()), transaction.getTxId());
+
+        //The lengths separate the fields and null data differs from empty data
+        Assert.assertFalse(Arrays.equals(transaction.getTxId(),
+                new Transaction("a".getBytes(), "bc".getBytes(), 1.5, 7, 0.1, 10.0).getTxId()));
+        Assert.assertFalse(Arrays.equals(transaction.getTxId(),
+                new Transaction("ab".getBytes(), "c".getBytes(), new byte[0], 1.5, 7, 0.1, 10.0).getTxId()));
+    }
 }
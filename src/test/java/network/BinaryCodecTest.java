@@ -0,0 +1,155 @@
+package network;
+
+import com.owlike.genson.Genson;
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+import network.adapters.BlockAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryCodecTest {
+
+    private static Transaction transaction(int i) {
+        Transaction transaction = new Transaction(SHA3Util.hash256(("sender" + i).getBytes()),
+                SHA3Util.hash256(("receiver" + i).getBytes()), 1.5 + i, i, 0.001, 10.0);
+        transaction.setSignature(SHA3Util.hash256(("signature" + i).getBytes()));
+        transaction.setTimeStamp(1000L + i);
+        return transaction;
+    }
+
+    @Test
+    public void testTransactionRoundTrip() throws Exception {
+        Transaction transaction = transaction(1);
+        transaction.setData("data".getBytes());
+
+        byte[] encoded = BinaryCodec.encodeTransaction(transaction);
+        Assert.assertEquals(BinaryCodec.TYPE_TRANSACTION, BinaryCodec.getType(encoded, 0));
+        Transaction decoded = BinaryCodec.decodeTransaction(encoded, 0, encoded.length);
+
+        Assert.assertEquals(transaction, decoded);
+        Assert.assertArrayEquals(transaction.getTxId(), decoded.getTxId());
+        Assert.assertArrayEquals(transaction.getSignature(), decoded.getSignature());
+        Assert.assertArrayEquals(transaction.getData(), decoded.getData());
+        Assert.assertNull(decoded.getBlockId());
+        Assert.assertEquals(transaction.getTimeStamp(), decoded.getTimeStamp());
+    }
+
+    @Test
+    public void testBlockRoundTripIsSmallerThanJson() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(transaction(i));
+        }
+        Block block = new Block(transactions, SHA3Util.hash256("previous".getBytes()));
+        block.setCoinbase(SHA3Util.hash256("coinbase".getBytes()));
+
+        byte[] encoded = BinaryCodec.encodeBlock(block);
+        Block decoded = BinaryCodec.decodeBlock(encoded, 0, encoded.length);
+
+        Assert.assertArrayEquals(block.getBlockHash(), decoded.getBlockHash());
+        Assert.assertArrayEquals(block.getCoinbase(), decoded.getCoinbase());
+        Assert.assertEquals(block.getTransactions(), decoded.getTransactions());
+        Assert.assertTrue(encoded.length * 2 < new Genson().serializeBytes(new BlockAdapter(block)).length);
+    }
+
+    @Test
+    public void testJsonIsNotBinary() {
+        byte[] json = new Genson().serializeBytes(new BlockAdapter(new Block(new byte[32])));
+
+        Assert.assertFalse(BinaryCodec.isBinary(json, 0, json.length));
+    }
+
+    @Test
+    public void testSyncMessagesRoundTrip() throws Exception {
+        byte[] request = BinaryCodec.encodeSyncRequest(300);
+        Assert.assertEquals(BinaryCodec.TYPE_SYNC_REQUEST, BinaryCodec.getType(request, 0));
+        Assert.assertEquals(300, BinaryCodec.decodeSyncRequest(request, 0, request.length));
+
+        List<Block> blocks = new ArrayList<>();
+        blocks.add(new Block(SHA3Util.hash256("first".getBytes())));
+        blocks.add(new Block(blocks.get(0).getBlockHash()));
+        byte[] chunk = BinaryCodec.encodeSyncChunk(new SyncChunk(7, 42, blocks));
+        SyncChunk decoded = BinaryCodec.decodeSyncChunk(chunk, 0, chunk.length);
+
+        Assert.assertEquals(7, decoded.getFromHeight());
+        Assert.assertEquals(42, decoded.getChainHeight());
+        Assert.assertEquals(2, decoded.getBlocks().size());
+        Assert.assertArrayEquals(blocks.get(1).getBlockHash(), decoded.getBlocks().get(1).getBlockHash());
+    }
+
+    @Test
+    public void testHeadersFirstMessagesRoundTrip() throws Exception {
+        byte[] request = BinaryCodec.encodeGetHeaders(12);
+        Assert.assertEquals(BinaryCodec.TYPE_GET_HEADERS, BinaryCodec.getType(request, 0));
+        Assert.assertEquals(12, BinaryCodec.decodeGetHeaders(request, 0, request.length));
+
+        List<Block> blocks = new ArrayList<>();
+        blocks.add(new Block(SHA3Util.hash256("first".getBytes())));
+        blocks.add(new Block(blocks.get(0).getBlockHash()));
+        List<BlockHeader> headers = new ArrayList<>();
+        blocks.forEach(block -> headers.add(block.getBlockHeader()));
+
+        byte[] headerChunk = BinaryCodec.encodeHeaders(new HeaderChunk(12, 20, headers));
+        HeaderChunk decodedChunk = BinaryCodec.decodeHeaders(headerChunk, 0, headerChunk.length);
+        Assert.assertEquals(12, decodedChunk.getFromHeight());
+        Assert.assertEquals(20, decodedChunk.getChainHeight());
+        Assert.assertArrayEquals(headers.get(0).asHash(), decodedChunk.getHeaders().get(0).asHash());
+        Assert.assertArrayEquals(headers.get(1).getPreviousHash(), decodedChunk.getHeaders().get(0).asHash());
+
+        List<byte[]> hashes = new ArrayList<>();
+        blocks.forEach(block -> hashes.add(block.getBlockHash()));
+        byte[] blockRequest = BinaryCodec.encodeGetBlocks(hashes);
+        List<byte[]> decodedHashes = BinaryCodec.decodeGetBlocks(blockRequest, 0, blockRequest.length);
+        Assert.assertEquals(2, decodedHashes.size());
+        Assert.assertArrayEquals(hashes.get(1), decodedHashes.get(1));
+
+        byte[] blockMessage = BinaryCodec.encodeBlocks(blocks);
+        List<Block> decodedBlocks = BinaryCodec.decodeBlocks(blockMessage, 0, blockMessage.length);
+        Assert.assertEquals(2, decodedBlocks.size());
+        Assert.assertArrayEquals(blocks.get(1).getBlockHash(), decodedBlocks.get(1).getBlockHash());
+        Assert.assertArrayEquals(headers.get(1).getTransactionListHash(), decodedBlocks.get(1).getMerkleTree().getMerkleTreeRoot());
+    }
+
+    @Test
+    public void testCompactBlockRebuildsFromKnownTransactions() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(transaction(i));
+        }
+        Block block = new Block(transactions, SHA3Util.hash256("previous".getBytes()));
+
+        byte[] encoded = BinaryCodec.encodeCompactBlock(CompactBlock.of(block));
+        Assert.assertTrue(encoded.length * 10 < BinaryCodec.encodeBlock(block).length);
+        CompactBlock decoded = BinaryCodec.decodeCompactBlock(encoded, 0, encoded.length);
+        Assert.assertArrayEquals(block.getBlockHash(), decoded.getBlock().getBlockHash());
+        Assert.assertEquals(100, decoded.getShortIds().length);
+
+        List<Transaction> rebuilt = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            long shortId = CompactBlock.shortId(CompactBlock.createHasher(block.getBlockHash()), transactions.get(i).getTxId());
+            Assert.assertEquals(shortId, decoded.getShortIds()[i]);
+            rebuilt.add(transactions.get(i));
+        }
+        decoded.getBlock().setTransactions(rebuilt);
+        Assert.assertArrayEquals(block.getBlockHeader().getTransactionListHash(), decoded.getBlock().getMerkleTree().getMerkleTreeRoot());
+
+        List<Integer> indexes = new ArrayList<>();
+        indexes.add(3);
+        indexes.add(70);
+        byte[] request = BinaryCodec.encodeGetBlockTransactions(block.getBlockHash(), indexes);
+        Assert.assertEquals(indexes, BinaryCodec.decodeGetBlockTransactions(request, 0, request.length).getIndexes());
+
+        List<Transaction> requested = new ArrayList<>();
+        requested.add(transactions.get(3));
+        requested.add(transactions.get(70));
+        byte[] answer = BinaryCodec.encodeBlockTransactions(new BlockTransactions(block.getBlockHash(), indexes, requested));
+        BlockTransactions decodedAnswer = BinaryCodec.decodeBlockTransactions(answer, 0, answer.length);
+        Assert.assertEquals(indexes, decodedAnswer.getIndexes());
+        Assert.assertEquals(requested, decodedAnswer.getTransactions());
+    }
+}
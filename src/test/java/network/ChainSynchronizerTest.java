@@ -0,0 +1,373 @@
+package network;
+
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import models.BlockHeader;
+import models.Transaction;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import utils.SHA3Util;
+import utils.SignatureUtil;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChainSynchronizerTest {
+
+    private static final byte[] COINBASE = SignatureUtil.getCoinbaseFromPublicKey(SignatureUtil.generateKeyPair());
+
+    private final boolean defaultHeadersFirst = ChainSynchronizer.isHeadersFirst();
+
+    private JChannel syncChannel;
+    private ChainSynchronizer synchronizer;
+    //Members the synchronizer requests from (the first one is asked first)
+    private Peer first;
+    private Peer second;
+    //Main chain of the network, starting with its genesis block
+    private List<Block> networkChain;
+    //Blocks of the network per block hash
+    private Map<String, Block> networkBlocks;
+    //Number of fallbacks to the legacy state transfer
+    private AtomicInteger legacyTransfers;
+
+    private static JChannel channel() {
+        try {
+            return new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+                    new STABLE(), new GMS().joinTimeout(1000), new FRAG2());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Blockchain blockchain = new Blockchain();
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(256));
+        DependencyManager.injectBlockchain(blockchain);
+        legacyTransfers = new AtomicInteger();
+
+        Block genesisBlock = new Blockchain().getGenesisBlock();
+        genesisBlock.getBlockHeader().setTimestamp(genesisBlock.getBlockHeader().getTimestamp() - 1000);
+        networkChain = createChain(genesisBlock, 20);
+        networkBlocks = new HashMap<>();
+        for (Block block : networkChain) {
+            networkBlocks.put(SHA3Util.digestToHex(block.getBlockHash()), block);
+        }
+
+        String clusterName = "sync-test-" + System.nanoTime();
+        syncChannel = channel();
+        syncChannel.connect(clusterName);
+        first = new Peer(clusterName);
+        second = new Peer(clusterName);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (syncChannel.getView().size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ChainSynchronizer.setHeadersFirst(defaultHeadersFirst);
+        second.channel.close();
+        first.channel.close();
+        syncChannel.close();
+    }
+
+    /**
+     * Creates a chain of empty blocks on top of a genesis block
+     *
+     * @param genesisBlock Genesis block
+     * @param size         Number of blocks including the genesis block
+     * @return Blocks of the chain in order
+     */
+    private static List<Block> createChain(Block genesisBlock, int size) {
+        List<Block> chain = new ArrayList<>();
+        chain.add(genesisBlock);
+        while (chain.size() < size) {
+            Block block = new Block(chain.get(chain.size() - 1).getBlockHash());
+            block.setCoinbase(COINBASE);
+            chain.add(block);
+        }
+        return chain;
+    }
+
+    /**
+     * Starts the synchronization of the own chain
+     *
+     * @param timeoutMillis Time without progress after that a request is repeated
+     */
+    private void startSynchronizer(long timeoutMillis) {
+        synchronizer = new ChainSynchronizer(syncChannel, legacyTransfers::incrementAndGet, timeoutMillis);
+        synchronizer.start(syncChannel.getView());
+    }
+
+    /**
+     * Waits until the own chain has the size of the network chain and the synchronizer is done
+     */
+    private void awaitSynchronized() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        Blockchain blockchain = DependencyManager.getBlockchain();
+        while ((blockchain.size() < networkChain.size() || synchronizer.isSynchronizing())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(synchronizer.isSynchronizing());
+        Assert.assertEquals(networkChain.size(), blockchain.size());
+        for (int height = 0; height < networkChain.size(); height++) {
+            Assert.assertArrayEquals("height " + height, networkChain.get(height).getBlockHash(),
+                    blockchain.getChain().get(height).getBlockHash());
+        }
+        Assert.assertEquals(0, legacyTransfers.get());
+    }
+
+    /**
+     * Returns the start heights of the requests of a type a peer received
+     *
+     * @param peer Peer that received the requests
+     * @param type Type of the requests (sync or header requests)
+     * @return Heights in the order of the requests
+     */
+    private static List<Integer> requestedHeights(Peer peer, byte type) throws Exception {
+        List<Integer> heights = new ArrayList<>();
+        for (byte[] request : peer.getRequests()) {
+            if (BinaryCodec.getType(request, 0) == type) {
+                heights.add((type == BinaryCodec.TYPE_SYNC_REQUEST)
+                        ? BinaryCodec.decodeSyncRequest(request, 0, request.length)
+                        : BinaryCodec.decodeGetHeaders(request, 0, request.length));
+            }
+        }
+        return heights;
+    }
+
+    /**
+     * Returns how often the block with the given hash was requested from a peer
+     *
+     * @param peer      Peer that received the requests
+     * @param blockHash Hash of the block
+     * @return Number of block requests for the block
+     */
+    private static int blockRequests(Peer peer, byte[] blockHash) throws Exception {
+        int count = 0;
+        for (byte[] request : peer.getRequests()) {
+            if (BinaryCodec.getType(request, 0) == BinaryCodec.TYPE_GET_BLOCKS) {
+                for (byte[] hash : BinaryCodec.decodeGetBlocks(request, 0, request.length)) {
+                    if (Arrays.equals(blockHash, hash)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Waits until a peer received the given number of requests
+     *
+     * @param peer  Peer that receives the requests
+     * @param count Number of requests
+     */
+    private static void awaitRequests(Peer peer, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (peer.getRequests().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(peer.getRequests().size() >= count);
+    }
+
+    @Test
+    public void testSyncInMultipleChunks() throws Exception {
+        ChainSynchronizer.setHeadersFirst(false);
+        startSynchronizer(ChainSynchronizer.TIMEOUT_MILLIS);
+
+        awaitSynchronized();
+        //The genesis block comes with the first chunk, every chunk continues at the new height
+        List<Integer> expected = new ArrayList<>();
+        for (int height = 0; height < networkChain.size(); height += ChainSynchronizer.CHUNK_BLOCKS) {
+            expected.add(height);
+        }
+        Assert.assertEquals(expected, requestedHeights(first, BinaryCodec.TYPE_SYNC_REQUEST));
+        Assert.assertTrue(second.getRequests().isEmpty());
+    }
+
+    @Test
+    public void testTimedOutChunkRequestGoesToAnotherMember() throws Exception {
+        ChainSynchronizer.setHeadersFirst(false);
+        first.answering = false;
+        startSynchronizer(300);
+
+        awaitRequests(first, 1);
+        Assert.assertTrue(second.getRequests().isEmpty());
+
+        //Every chunk starts with the coordinator again, so every request is repeated to the second member
+        awaitSynchronized();
+        Assert.assertEquals(requestedHeights(first, BinaryCodec.TYPE_SYNC_REQUEST),
+                requestedHeights(second, BinaryCodec.TYPE_SYNC_REQUEST));
+        Assert.assertEquals(0, (int) requestedHeights(second, BinaryCodec.TYPE_SYNC_REQUEST).get(0));
+    }
+
+    @Test
+    public void testHeadersFirstSyncDownloadsBodiesFromAllMembers() throws Exception {
+        ChainSynchronizer.setHeadersFirst(true);
+        startSynchronizer(ChainSynchronizer.TIMEOUT_MILLIS);
+
+        awaitSynchronized();
+        //All headers come with the first chunk, the last request finds no further headers
+        Assert.assertEquals(Arrays.asList(0, networkChain.size()), requestedHeights(first, BinaryCodec.TYPE_GET_HEADERS));
+        for (Block block : networkChain.subList(1, networkChain.size())) {
+            Assert.assertEquals(1, blockRequests(first, block.getBlockHash()) + blockRequests(second, block.getBlockHash()));
+        }
+        //The batches are spread over the members
+        Assert.assertEquals(1, blockRequests(first, networkChain.get(1).getBlockHash()));
+        Assert.assertEquals(1, blockRequests(second, networkChain.get(1 + ChainSynchronizer.BODY_BATCH).getBlockHash()));
+    }
+
+    @Test
+    public void testHeaderChainThatDoesNotLinkIsRequestedFromAnotherMember() throws Exception {
+        ChainSynchronizer.setHeadersFirst(true);
+        List<Block> brokenChain = new ArrayList<>(networkChain);
+        Block unlinked = new Block(SHA3Util.hash256("unknown".getBytes()));
+        unlinked.setCoinbase(COINBASE);
+        brokenChain.set(5, unlinked);
+        first.chain = brokenChain;
+        startSynchronizer(ChainSynchronizer.TIMEOUT_MILLIS);
+
+        awaitSynchronized();
+        //The linked headers of the first member are kept, the second member continues at the unlinked header
+        Assert.assertEquals(0, (int) requestedHeights(first, BinaryCodec.TYPE_GET_HEADERS).get(0));
+        Assert.assertEquals(5, (int) requestedHeights(second, BinaryCodec.TYPE_GET_HEADERS).get(0));
+        Assert.assertNull(DependencyManager.getBlockchain().getBlockByHash(unlinked.getBlockHash()));
+    }
+
+    @Test
+    public void testBodyNotMatchingItsHeaderIsRequestedAgain() throws Exception {
+        ChainSynchronizer.setHeadersFirst(true);
+        Block block = networkChain.get(3);
+        byte[] encoded = BinaryCodec.encodeBlock(block);
+        Block tampered = BinaryCodec.decodeBlock(encoded, 0, encoded.length);
+        Transaction transaction = new Transaction(SHA3Util.hash256("sender".getBytes()), SHA3Util.hash256("receiver".getBytes()), 1.0, 0, 0.1, 10.0);
+        tampered.setTransactions(new ArrayList<>(Collections.singletonList(transaction)));
+        Assert.assertArrayEquals(block.getBlockHash(), tampered.getBlockHash());
+        first.tampered.put(SHA3Util.digestToHex(block.getBlockHash()), tampered);
+        startSynchronizer(300);
+
+        awaitSynchronized();
+        Assert.assertEquals(2, blockRequests(first, block.getBlockHash()) + blockRequests(second, block.getBlockHash()));
+        Block added = DependencyManager.getBlockchain().getBlockByHash(block.getBlockHash());
+        Assert.assertTrue(added.getTransactions().isEmpty());
+        Assert.assertTrue(added.hasValidMerkleRoot());
+    }
+
+    /**
+     * Member of the network that answers the requests of the synchronizer from the network chain
+     */
+    private class Peer extends ReceiverAdapter {
+
+        //Communication channel of the member
+        private final JChannel channel;
+        //Received requests
+        private final List<byte[]> requests = Collections.synchronizedList(new ArrayList<>());
+        //Chain the chunks and headers are created from
+        private List<Block> chain = networkChain;
+        //Blocks that are sent once instead of the blocks of the network with the same hash
+        private final Map<String, Block> tampered = new HashMap<>();
+        //The member answers the requests
+        private volatile boolean answering = true;
+
+        /**
+         * Creates a new member and joins the cluster
+         *
+         * @param clusterName Name of the cluster
+         */
+        private Peer(String clusterName) throws Exception {
+            channel = channel();
+            channel.setReceiver(this);
+            channel.connect(clusterName);
+        }
+
+        @Override
+        public void receive(Message msg) {
+            byte[] request = msg.getBuffer();
+            requests.add(request);
+            if (!answering) {
+                return;
+            }
+            try {
+                answer(request);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Answers a request of the synchronizer directly on the synchronizer
+         *
+         * @param request Received request
+         */
+        private void answer(byte[] request) throws Exception {
+            byte[] answer;
+            switch (BinaryCodec.getType(request, 0)) {
+                case BinaryCodec.TYPE_SYNC_REQUEST:
+                    int fromHeight = BinaryCodec.decodeSyncRequest(request, 0, request.length);
+                    List<Block> blocks = chain.subList(Math.min(fromHeight, chain.size()),
+                            Math.min(fromHeight + ChainSynchronizer.CHUNK_BLOCKS, chain.size()));
+                    answer = BinaryCodec.encodeSyncChunk(new SyncChunk(fromHeight, chain.size(), new ArrayList<>(blocks)));
+                    synchronizer.handleChunk(channel.getAddress(), answer, 0, answer.length);
+                    break;
+                case BinaryCodec.TYPE_GET_HEADERS:
+                    int fromHeaderHeight = BinaryCodec.decodeGetHeaders(request, 0, request.length);
+                    List<BlockHeader> headers = new ArrayList<>();
+                    for (int height = fromHeaderHeight; height < chain.size(); height++) {
+                        headers.add(chain.get(height).getBlockHeader());
+                    }
+                    answer = BinaryCodec.encodeHeaders(new HeaderChunk(fromHeaderHeight, chain.size(), headers));
+                    synchronizer.handleHeaders(channel.getAddress(), answer, 0, answer.length);
+                    break;
+                case BinaryCodec.TYPE_GET_BLOCKS:
+                    List<Block> bodies = new ArrayList<>();
+                    for (byte[] hash : BinaryCodec.decodeGetBlocks(request, 0, request.length)) {
+                        String hex = SHA3Util.digestToHex(hash);
+                        Block tamperedBlock;
+                        synchronized (tampered) {
+                            tamperedBlock = tampered.remove(hex);
+                        }
+                        bodies.add((tamperedBlock != null) ? tamperedBlock : networkBlocks.get(hex));
+                    }
+                    answer = BinaryCodec.encodeBlocks(bodies);
+                    synchronizer.handleBlocks(channel.getAddress(), answer, 0, answer.length);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Returns a copy of the received requests
+         *
+         * @return Received requests in order
+         */
+        private List<byte[]> getRequests() {
+            synchronized (requests) {
+                return new ArrayList<>(requests);
+            }
+        }
+    }
+}
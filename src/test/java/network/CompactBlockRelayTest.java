@@ -0,0 +1,186 @@
+package network;
+
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import models.Transaction;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompactBlockRelayTest {
+
+    private JChannel relayChannel;
+    private JChannel peerChannel;
+    private CompactBlockRelay relay;
+    //Blocks handed to the consumer of the relay
+    private List<Block> completed;
+    //Requests for missing transactions received by the peer
+    private List<BlockTransactions> requests;
+    private List<Transaction> pending;
+
+    private static Transaction transaction(int i) {
+        Transaction transaction = new Transaction(SHA3Util.hash256(("relay-sender" + i).getBytes()),
+                SHA3Util.hash256(("relay-receiver" + i).getBytes()), 1.5 + i, i, 0.001, 10.0);
+        transaction.setSignature(SHA3Util.hash256(("relay-signature" + i).getBytes()));
+        transaction.setTimeStamp(1000L + i);
+        return transaction;
+    }
+
+    private static JChannel channel() {
+        try {
+            return new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+                    new STABLE(), new GMS().joinTimeout(1000), new FRAG2());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        String clusterName = "relay-test-" + System.nanoTime();
+        DependencyManager.injectBlockchain(new Blockchain());
+        completed = Collections.synchronizedList(new ArrayList<>());
+        requests = Collections.synchronizedList(new ArrayList<>());
+        pending = new ArrayList<>();
+
+        relayChannel = channel();
+        relayChannel.connect(clusterName);
+        relay = new CompactBlockRelay(relayChannel, completed::add);
+
+        peerChannel = channel();
+        peerChannel.setReceiver(new ReceiverAdapter() {
+            @Override
+            public void receive(Message msg) {
+                try {
+                    requests.add(BinaryCodec.decodeGetBlockTransactions(msg.getRawBuffer(), msg.getOffset(), msg.getLength()));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        peerChannel.connect(clusterName);
+    }
+
+    @After
+    public void tearDown() {
+        DependencyManager.getPendingTransactions().clearPendingTransactions(pending);
+        peerChannel.close();
+        relayChannel.close();
+    }
+
+    private void addPending(Transaction transaction) {
+        pending.add(transaction);
+        DependencyManager.getPendingTransactions().addPendingTransaction(transaction);
+    }
+
+    private void receiveCompactBlock(Block block) throws Exception {
+        byte[] message = BinaryCodec.encodeCompactBlock(CompactBlock.of(block));
+        relay.handleCompactBlock(peerChannel.getAddress(), message, 0, message.length);
+    }
+
+    private void receiveTransactions(Block block, List<Integer> indexes, List<Transaction> transactions) throws Exception {
+        byte[] message = BinaryCodec.encodeBlockTransactions(new BlockTransactions(block.getBlockHash(), indexes, transactions));
+        relay.handleBlockTransactions(peerChannel.getAddress(), message, 0, message.length);
+    }
+
+    private BlockTransactions awaitRequest(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (requests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, requests.size());
+        return requests.get(count - 1);
+    }
+
+    @Test
+    public void testMissingTransactionsAreRequestedAndBlockCompleted() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            transactions.add(transaction(i));
+        }
+        Block block = new Block(transactions, SHA3Util.hash256("previous".getBytes()));
+        addPending(transactions.get(0));
+        addPending(transactions.get(2));
+
+        receiveCompactBlock(block);
+        BlockTransactions request = awaitRequest(1);
+        Assert.assertArrayEquals(block.getBlockHash(), request.getBlockHash());
+        Assert.assertEquals(Arrays.asList(1, 3), request.getIndexes());
+        Assert.assertTrue(completed.isEmpty());
+
+        receiveTransactions(block, request.getIndexes(), Arrays.asList(transactions.get(1), transactions.get(3)));
+        Assert.assertEquals(1, completed.size());
+        Block rebuilt = completed.get(0);
+        Assert.assertArrayEquals(block.getBlockHash(), rebuilt.getBlockHash());
+        Assert.assertArrayEquals(block.getBlockHeader().getTransactionListHash(), rebuilt.getMerkleTree().getMerkleTreeRoot());
+        //The block is not accepted yet, the shared pending transactions must not point to it
+        for (Transaction transaction : rebuilt.getTransactions()) {
+            Assert.assertNull(transaction.getBlockId());
+        }
+
+        //A late answer for a completed block is ignored
+        receiveTransactions(block, request.getIndexes(), Arrays.asList(transactions.get(1), transactions.get(3)));
+        Assert.assertEquals(1, completed.size());
+    }
+
+    @Test
+    public void testMismatchingTransactionsRequestWholeBlockOnce() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 10; i < 13; i++) {
+            transactions.add(transaction(i));
+        }
+        Block block = new Block(transactions, SHA3Util.hash256("previous".getBytes()));
+        addPending(transactions.get(0));
+        addPending(transactions.get(2));
+
+        receiveCompactBlock(block);
+        Assert.assertEquals(Collections.singletonList(1), awaitRequest(1).getIndexes());
+
+        //A wrong transaction (like a short Id collision) does not match the merkle root, all transactions are requested
+        receiveTransactions(block, Collections.singletonList(1), Collections.singletonList(transaction(99)));
+        Assert.assertEquals(Arrays.asList(0, 1, 2), awaitRequest(2).getIndexes());
+        Assert.assertTrue(completed.isEmpty());
+
+        receiveTransactions(block, Arrays.asList(0, 1, 2), transactions);
+        Assert.assertEquals(1, completed.size());
+        Assert.assertArrayEquals(block.getBlockHash(), completed.get(0).getBlockHash());
+    }
+
+    @Test
+    public void testOldestPartialBlockIsEvicted() throws Exception {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i <= CompactBlockRelay.MAX_PARTIAL_BLOCKS; i++) {
+            Block block = new Block(Collections.singletonList(transaction(100 + i)), SHA3Util.hash256(("previous" + i).getBytes()));
+            blocks.add(block);
+            receiveCompactBlock(block);
+        }
+        awaitRequest(blocks.size());
+
+        Block evicted = blocks.get(0);
+        receiveTransactions(evicted, Collections.singletonList(0), evicted.getTransactions());
+        Assert.assertTrue(completed.isEmpty());
+
+        Block latest = blocks.get(blocks.size() - 1);
+        receiveTransactions(latest, Collections.singletonList(0), latest.getTransactions());
+        Assert.assertEquals(1, completed.size());
+        Assert.assertArrayEquals(latest.getBlockHash(), completed.get(0).getBlockHash());
+    }
+}
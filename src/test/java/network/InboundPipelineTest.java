@@ -0,0 +1,84 @@
+package network;
+
+import models.Transaction;
+import network.adapters.TransactionAdapter;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
+import org.jgroups.Message;
+import org.junit.Assert;
+import org.junit.Test;
+import utils.SignatureUtil;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class InboundPipelineTest {
+
+    private static final X9ECParameters CURVE = SECNamedCurves.getByName("secp256k1");
+    private static final ECDomainParameters DOMAIN =
+            new ECDomainParameters(CURVE.getCurve(), CURVE.getG(), CURVE.getN(), CURVE.getH());
+
+    private static List<Transaction> signedTransactions(int count) throws Exception {
+        KeyPair keyPair = SignatureUtil.generateKeyPair();
+        byte[] sender = SignatureUtil.getCoinbaseFromPublicKey(keyPair);
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        signer.init(true, new ECPrivateKeyParameters(((BCECPrivateKey) keyPair.getPrivate()).getD(), DOMAIN));
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(sender, "receiver".getBytes(), 1.0 + i, i, 0.1, 10.0);
+            BigInteger[] signature = signer.generateSignature(transaction.asJSONString().getBytes(StandardCharsets.UTF_8));
+            ASN1EncodableVector vector = new ASN1EncodableVector();
+            vector.add(new ASN1Integer(signature[0]));
+            vector.add(new ASN1Integer(signature[1]));
+            transaction.setSignature(new DERSequence(vector).getEncoded());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Test
+    public void testValidItemsAreAppliedInArrivalOrder() throws Exception {
+        List<Transaction> transactions = signedTransactions(20);
+        transactions.get(7).setSignature(signedTransactions(1).get(0).getSignature());
+        List<Transaction> applied = Collections.synchronizedList(new ArrayList<>());
+
+        InboundPipeline pipeline = new InboundPipeline(message -> transactions.get(message.getRawBuffer()[0]), new MessageHandler() {
+            @Override
+            public void handleTransaction(TransactionAdapter transactionAdapter) {
+                applied.add(transactionAdapter.getTransaction());
+            }
+        });
+        for (int i = 0; i < transactions.size(); i++) {
+            pipeline.submit(new Message(null, new byte[]{(byte) i}), false);
+        }
+
+        long deadline = System.currentTimeMillis() + 30000;
+        Map<String, Long> metrics = pipeline.getMetrics();
+        while (metrics.get("applied") + metrics.get("rejected") < transactions.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            metrics = pipeline.getMetrics();
+        }
+
+        List<Transaction> expected = new ArrayList<>(transactions);
+        expected.remove(7);
+        Assert.assertEquals(expected, applied);
+        Assert.assertEquals(1L, (long) metrics.get("rejected"));
+        Assert.assertEquals(20L, (long) metrics.get("received"));
+        Assert.assertEquals(0L, (long) metrics.get("dropped"));
+    }
+}
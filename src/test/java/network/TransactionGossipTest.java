@@ -0,0 +1,136 @@
+package network;
+
+import models.Transaction;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.junit.Assert;
+import org.junit.Test;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransactionGossipTest {
+
+    private static JChannel connect(String clusterName, List<Transaction> received, TransactionGossip[] gossip) throws Exception {
+        return connect(clusterName, received, gossip, new AtomicInteger(), TransactionGossip.REQUEST_TIMEOUT_MILLIS);
+    }
+
+    private static JChannel connect(String clusterName, List<Transaction> received, TransactionGossip[] gossip,
+                                    AtomicInteger repliesToDrop, long requestTimeoutMillis) throws Exception {
+        JChannel channel = new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+                new STABLE(), new GMS().joinTimeout(1000), new FRAG2());
+        gossip[0] = new TransactionGossip(channel, received::add, txId -> false, requestTimeoutMillis);
+        channel.setReceiver(new ReceiverAdapter() {
+            @Override
+            public void receive(Message msg) {
+                try {
+                    byte[] buffer = msg.getRawBuffer();
+                    switch (BinaryCodec.getType(buffer, msg.getOffset())) {
+                        case BinaryCodec.TYPE_INVENTORY:
+                            gossip[0].handleInventory(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                            break;
+                        case BinaryCodec.TYPE_GET_TRANSACTIONS:
+                            gossip[0].handleGetTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                            break;
+                        case BinaryCodec.TYPE_TRANSACTIONS:
+                            if (repliesToDrop.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                                break;
+                            }
+                            gossip[0].handleTransactions(msg.getSrc(), buffer, msg.getOffset(), msg.getLength());
+                            break;
+                        default:
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        channel.setDiscardOwnMessages(true);
+        channel.connect(clusterName);
+        return channel;
+    }
+
+    private static void awaitSize(List<Transaction> list, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (list.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testAnnouncedTransactionsArePulledOnce() throws Exception {
+        String clusterName = "gossip-test-" + System.nanoTime();
+        List<Transaction> receivedBySender = Collections.synchronizedList(new ArrayList<>());
+        List<Transaction> receivedByPeer = Collections.synchronizedList(new ArrayList<>());
+        TransactionGossip[] sender = new TransactionGossip[1];
+        TransactionGossip[] peer = new TransactionGossip[1];
+        JChannel senderChannel = connect(clusterName, receivedBySender, sender);
+        JChannel peerChannel = connect(clusterName, receivedByPeer, peer);
+
+        try {
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                Transaction transaction = new Transaction(SHA3Util.hash256(("sender" + i).getBytes()),
+                        SHA3Util.hash256(("receiver" + i).getBytes()), 1.0 + i, i, 0.001, 10.0);
+                transaction.setSignature(SHA3Util.hash256(("signature" + i).getBytes()));
+                transactions.add(transaction);
+                sender[0].announce(transaction);
+            }
+            awaitSize(receivedByPeer, 50);
+            Assert.assertEquals(new HashSet<>(transactions), new HashSet<>(receivedByPeer));
+
+            //Known transactions are not requested again
+            sender[0].announce(transactions.get(0));
+            sender[0].flush();
+            Thread.sleep(200);
+            Assert.assertEquals(50, receivedByPeer.size());
+            Assert.assertTrue(receivedBySender.isEmpty());
+        } finally {
+            peerChannel.close();
+            senderChannel.close();
+        }
+    }
+
+    @Test
+    public void testRequestIsRepeatedWhenReplyIsLost() throws Exception {
+        String clusterName = "gossip-test-" + System.nanoTime();
+        List<Transaction> receivedByPeer = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger repliesToDrop = new AtomicInteger(1);
+        TransactionGossip[] sender = new TransactionGossip[1];
+        TransactionGossip[] peer = new TransactionGossip[1];
+        JChannel senderChannel = connect(clusterName, new ArrayList<>(), sender);
+        JChannel peerChannel = connect(clusterName, receivedByPeer, peer, repliesToDrop, 100L);
+
+        try {
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Transaction transaction = new Transaction(SHA3Util.hash256(("lost-sender" + i).getBytes()),
+                        SHA3Util.hash256(("lost-receiver" + i).getBytes()), 1.0 + i, i, 0.001, 10.0);
+                transaction.setSignature(SHA3Util.hash256(("lost-signature" + i).getBytes()));
+                transactions.add(transaction);
+                sender[0].announce(transaction);
+            }
+            sender[0].flush();
+
+            //The first reply is lost, nobody else announces the transactions, so they are requested again
+            awaitSize(receivedByPeer, 5);
+            Assert.assertEquals(0, repliesToDrop.get());
+            Assert.assertEquals(new HashSet<>(transactions), new HashSet<>(receivedByPeer));
+        } finally {
+            peerChannel.close();
+            senderChannel.close();
+        }
+    }
+}
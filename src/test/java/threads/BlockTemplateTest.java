@@ -0,0 +1,56 @@
+package threads;
+
+import models.Block;
+import models.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+import utils.SHA3Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BlockTemplateTest {
+
+    private static final byte[] PREVIOUS_HASH = SHA3Util.hash256("previous".getBytes());
+
+    private static List<Transaction> transactions(int from, int to) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Transaction transaction = new Transaction(SHA3Util.hash256(("template-sender" + i).getBytes()),
+                    SHA3Util.hash256(("template-receiver" + i).getBytes()), 1.0 + i, i, 0.001, 10.0);
+            transaction.setSignature(SHA3Util.hash256(("template-signature" + i).getBytes()));
+            transaction.setTimeStamp(1000L + i);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private static void assertSameContent(Block expected, Block actual) {
+        Assert.assertArrayEquals(expected.getBlockHeader().getTransactionListHash(), actual.getBlockHeader().getTransactionListHash());
+        Assert.assertArrayEquals(expected.getBlockHeader().getTransactionListHash(), actual.getMerkleTree().getMerkleTreeRoot());
+        Assert.assertEquals(expected.getBlockSize(), actual.getBlockSize());
+        Assert.assertEquals(expected.getTransactionCount(), actual.getTransactionCount());
+        Assert.assertEquals(expected.getTransactions(), actual.getTransactions());
+    }
+
+    @Test
+    public void testAppendedTemplateMatchesFreshBlock(){
+        List<Transaction> transactions = transactions(0, 7);
+        BlockTemplate template = new BlockTemplate(new ArrayList<>(transactions.subList(0, 3)), PREVIOUS_HASH);
+        assertSameContent(new Block(new ArrayList<>(transactions.subList(0, 3)), PREVIOUS_HASH), template.getBlock());
+
+        //Transactions that are already part of the template are not appended again
+        Assert.assertEquals(4, template.append(transactions));
+        Assert.assertEquals(0, template.append(transactions));
+        assertSameContent(new Block(new ArrayList<>(transactions), PREVIOUS_HASH), template.getBlock());
+    }
+
+    @Test
+    public void testEmptyTemplateMatchesFreshBlock(){
+        BlockTemplate template = new BlockTemplate(new ArrayList<>(), PREVIOUS_HASH);
+        assertSameContent(new Block(PREVIOUS_HASH), template.getBlock());
+
+        Assert.assertEquals(1, template.append(transactions(0, 1)));
+        assertSameContent(new Block(transactions(0, 1), PREVIOUS_HASH), template.getBlock());
+    }
+}
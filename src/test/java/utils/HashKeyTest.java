@@ -0,0 +1,35 @@
+package utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HashKeyTest {
+
+    @Test
+    public void testKeysOfDifferentLengths(){
+        for (int length : new int[]{0, 5, 32, 65}) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 37 + 1);
+            }
+            HashKey key = HashKey.of(bytes);
+
+            Assert.assertArrayEquals(bytes, key.toBytes());
+            Assert.assertEquals(SHA3Util.digestToHex(bytes), key.toHex());
+            Assert.assertEquals(key, HashKey.fromHex(key.toHex()));
+            Assert.assertEquals(key.hashCode(), HashKey.of(bytes.clone()).hashCode());
+        }
+
+        //Trailing zeros are part of the value
+        Assert.assertNotEquals(HashKey.of(new byte[32]), HashKey.of(new byte[33]));
+        Assert.assertNotEquals(HashKey.of(new byte[]{1, 2}), HashKey.of(new byte[]{1, 3}));
+    }
+
+    @Test
+    public void testInvalidHex(){
+        Assert.assertNull(HashKey.fromHex("abc"));
+        Assert.assertNull(HashKey.fromHex("zz"));
+        Assert.assertNull(HashKey.fromHex(null));
+        Assert.assertArrayEquals(new byte[]{(byte) 0xAB, 0x0F}, HashKey.fromHex("AB0f").toBytes());
+    }
+}
@@ -0,0 +1,29 @@
+package utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SHA3UtilTest {
+
+    @Test
+    public void testMidstateMatchesFullHash(){
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        for (int prefixLength : new int[]{0, 76, 136, 200, 296}) {
+            SHA3Util.Midstate midstate = SHA3Util.absorbPrefix(bytes, 0, prefixLength);
+
+            for (int round = 0; round < 2; round++) {
+                bytes[bytes.length - 1] = (byte) round;
+                byte[] expected = SHA3Util.hash256(Arrays.copyOf(bytes, bytes.length));
+                byte[] actual = midstate.hash256(bytes, prefixLength, bytes.length - prefixLength);
+
+                Assert.assertArrayEquals(expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class SegmentedListTest {
+
+    @Test
+    public void testAppendAndTruncateAcrossSegments(){
+        SegmentedList<Integer> list = new SegmentedList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        Assert.assertEquals(expected, list);
+        Assert.assertEquals(Integer.valueOf(4999), list.get(4999));
+        Assert.assertNull(list.getIfPresent(5000));
+
+        list.truncate(1500);
+        Assert.assertEquals(1500, list.size());
+        Assert.assertNull(list.getIfPresent(1500));
+        list.add(-1);
+        Assert.assertEquals(Integer.valueOf(-1), list.get(1500));
+
+        list.subList(1000, list.size()).clear();
+        Assert.assertEquals(expected.subList(0, 1000), list);
+    }
+
+    @Test
+    public void testOnlyAppendAndTruncateAreSupported(){
+        SegmentedList<Integer> list = new SegmentedList<>();
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        Runnable[] mutations = {
+                () -> list.add(0, -1),
+                () -> list.set(0, -1),
+                () -> list.remove(0),
+                () -> list.subList(2, 5).clear()
+        };
+        for (Runnable mutation : mutations) {
+            try {
+                mutation.run();
+                Assert.fail("Mutation before the end of the list must not be supported");
+            } catch (UnsupportedOperationException e) {
+                Assert.assertEquals(10, list.size());
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetBeyondSize(){
+        SegmentedList<Integer> list = new SegmentedList<>();
+        list.add(1);
+        list.get(1);
+    }
+
+    @Test
+    public void testConcurrentReadersSeeCompletePrefix() throws InterruptedException {
+        SegmentedList<Integer> list = new SegmentedList<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200000; i++) {
+                list.add(i);
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            int size = list.size();
+            if (size > 0) {
+                Assert.assertEquals(Integer.valueOf(size - 1), list.get(size - 1));
+            }
+        }
+        writer.join();
+        Assert.assertEquals(200000, list.size());
+    }
+
+    @Test
+    public void testIteratorsSeeCompleteSnapshotDuringTruncation() throws InterruptedException {
+        SegmentedList<Integer> list = new SegmentedList<>();
+        for (int i = 0; i < 3000; i++) {
+            list.add(i);
+        }
+        List<Throwable> errors = new ArrayList<>();
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 300; round++) {
+                list.truncate(1000 + round);
+                for (int i = list.size(); i < 3000; i++) {
+                    list.add(i);
+                }
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            try {
+                int index = 0;
+                for (Integer element : list) {
+                    Assert.assertEquals(Integer.valueOf(index++), element);
+                }
+                List<Integer> snapshot = list.snapshot();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    Assert.assertEquals(Integer.valueOf(i), snapshot.get(i));
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+                break;
+            }
+        }
+        writer.join();
+        Assert.assertEquals(Collections.emptyList(), errors);
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByTruncation(){
+        SegmentedList<Integer> list = new SegmentedList<>();
+        for (int i = 0; i < 1500; i++) {
+            list.add(i);
+        }
+        List<Integer> snapshot = list.snapshot();
+
+        list.truncate(1100);
+        for (int i = 0; i < 500; i++) {
+            list.add(-i);
+        }
+        Assert.assertEquals(1500, snapshot.size());
+        for (int i = 0; i < 1500; i++) {
+            Assert.assertEquals(Integer.valueOf(i), snapshot.get(i));
+        }
+        Assert.assertEquals(Integer.valueOf(-1), list.get(1101));
+    }
+}
@@ -0,0 +1,33 @@
+package utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SignatureCacheTest {
+
+    @Test
+    public void testContainsOnlyMatchingEntries(){
+        SignatureCache signatureCache = new SignatureCache(10);
+        signatureCache.add("data".getBytes(), "signature".getBytes(), "key".getBytes());
+
+        Assert.assertTrue(signatureCache.contains("data".getBytes(), "signature".getBytes(), "key".getBytes()));
+        Assert.assertFalse(signatureCache.contains("data".getBytes(), "signature".getBytes(), "other".getBytes()));
+        Assert.assertFalse(signatureCache.contains("data".getBytes(), "signaturf".getBytes(), "key".getBytes()));
+        Assert.assertFalse(signatureCache.contains("datasignature".getBytes(), new byte[0], "key".getBytes()));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed(){
+        SignatureCache signatureCache = new SignatureCache(2);
+        signatureCache.add("1".getBytes(), "s".getBytes(), "k".getBytes());
+        signatureCache.add("2".getBytes(), "s".getBytes(), "k".getBytes());
+        Assert.assertTrue(signatureCache.contains("1".getBytes(), "s".getBytes(), "k".getBytes()));
+
+        signatureCache.add("3".getBytes(), "s".getBytes(), "k".getBytes());
+
+        Assert.assertEquals(2, signatureCache.size());
+        Assert.assertTrue(signatureCache.contains("1".getBytes(), "s".getBytes(), "k".getBytes()));
+        Assert.assertFalse(signatureCache.contains("2".getBytes(), "s".getBytes(), "k".getBytes()));
+        Assert.assertTrue(signatureCache.contains("3".getBytes(), "s".getBytes(), "k".getBytes()));
+    }
+}
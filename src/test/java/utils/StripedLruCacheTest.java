@@ -0,0 +1,44 @@
+package utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StripedLruCacheTest {
+
+    @Test
+    public void testPutIfAbsentKeepsFirstValue(){
+        StripedLruCache<HashKey, String> cache = new StripedLruCache<>(10);
+        HashKey key = HashKey.of("key".getBytes());
+
+        Assert.assertEquals("first", cache.putIfAbsent(key, "first"));
+        Assert.assertEquals("first", cache.putIfAbsent(HashKey.of("key".getBytes()), "second"));
+        Assert.assertEquals("first", cache.get(HashKey.of("key".getBytes())));
+        Assert.assertNull(cache.get(HashKey.of("other".getBytes())));
+    }
+
+    @Test
+    public void testSizeNeverExceedsCapacity(){
+        StripedLruCache<HashKey, Integer> cache = new StripedLruCache<>(100);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.putIfAbsent(HashKey.of(SHA3Util.hash256(("key" + i).getBytes())), i);
+            Assert.assertTrue(cache.size() <= 100);
+        }
+        //The most recent key is never evicted
+        Assert.assertEquals(Integer.valueOf(999), cache.get(HashKey.of(SHA3Util.hash256("key999".getBytes()))));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed(){
+        //A cache of 2 entries has 2 stripes with 1 entry each, 0, 2 and 4 share a stripe
+        StripedLruCache<Integer, String> cache = new StripedLruCache<>(2);
+        cache.putIfAbsent(0, "0");
+        cache.putIfAbsent(1, "1");
+        cache.putIfAbsent(2, "2");
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get(0));
+        Assert.assertEquals("1", cache.get(1));
+        Assert.assertEquals("2", cache.get(2));
+    }
+}
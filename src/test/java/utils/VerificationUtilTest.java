@@ -0,0 +1,128 @@
+package utils;
+
+import logic.Blockchain;
+import logic.DependencyManager;
+import models.Block;
+import models.Transaction;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+public class VerificationUtilTest {
+
+    private static final X9ECParameters CURVE = SECNamedCurves.getByName("secp256k1");
+    private static final ECDomainParameters DOMAIN =
+            new ECDomainParameters(CURVE.getCurve(), CURVE.getG(), CURVE.getN(), CURVE.getH());
+
+    private final int defaultThreads = SignatureUtil.getVerificationThreads();
+    private final boolean defaultParallel = VerificationUtil.isParallelVerification();
+
+    @After
+    public void tearDown(){
+        SignatureUtil.setVerificationThreads(defaultThreads);
+        VerificationUtil.setParallelVerification(defaultParallel);
+    }
+
+    private static List<Transaction> signedTransactions(int count) throws Exception {
+        KeyPair keyPair = SignatureUtil.generateKeyPair();
+        byte[] sender = SignatureUtil.getCoinbaseFromPublicKey(keyPair);
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        signer.init(true, new ECPrivateKeyParameters(((BCECPrivateKey) keyPair.getPrivate()).getD(), DOMAIN));
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(sender, "receiver".getBytes(), 1.0 + i, i, 0.1, 10.0);
+            BigInteger[] signature = signer.generateSignature(transaction.asJSONString().getBytes(StandardCharsets.UTF_8));
+            ASN1EncodableVector vector = new ASN1EncodableVector();
+            vector.add(new ASN1Integer(signature[0]));
+            vector.add(new ASN1Integer(signature[1]));
+            transaction.setSignature(new DERSequence(vector).getEncoded());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Test
+    public void testParallelSignatureVerification() throws Exception {
+        List<Transaction> transactions = signedTransactions(32);
+        VerificationUtil.setParallelVerification(true);
+        SignatureUtil.setVerificationThreads(4);
+
+        Assert.assertTrue(VerificationUtil.verifySignatures(transactions));
+
+        transactions.get(21).setSignature(signedTransactions(1).get(0).getSignature());
+        Assert.assertFalse(VerificationUtil.verifySignatures(transactions));
+
+        VerificationUtil.setParallelVerification(false);
+        Assert.assertFalse(VerificationUtil.verifySignatures(transactions));
+    }
+
+    @Test
+    public void testBatchReturnsResultPerTransaction() throws Exception {
+        List<Transaction> transactions = signedTransactions(10);
+        transactions.get(3).setSignature(signedTransactions(1).get(0).getSignature());
+        transactions.get(8).setSignature(null);
+        SignatureUtil.setVerificationThreads(3);
+
+        boolean[] results = SignatureUtil.verifyBatch(transactions);
+
+        for (int i = 0; i < transactions.size(); i++) {
+            Assert.assertEquals("transaction " + i, i != 3 && i != 8, results[i]);
+        }
+    }
+
+    @Test
+    public void testBlockWithMalformedTxIdIsInvalid() throws Exception {
+        Blockchain blockchain = new Blockchain();
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(256));
+        DependencyManager.injectBlockchain(blockchain);
+
+        Block block = new Block(signedTransactions(3), blockchain.getGenesisBlock().getBlockHash());
+        block.getTransactions().get(1).setTxId(new byte[]{1, 2, 3});
+
+        Assert.assertFalse(block.hasValidMerkleRoot());
+        Assert.assertFalse(VerificationUtil.verifyBlockContent(block));
+        Assert.assertFalse(VerificationUtil.verifyBlock(block));
+
+        blockchain.addBlock(block);
+        Assert.assertNull(blockchain.getBlockByHash(block.getBlockHash()));
+    }
+
+    @Test
+    public void testHeaderWithWrongHashSizeIsRejected() throws Exception {
+        Blockchain blockchain = new Blockchain();
+        blockchain.setDifficulty(BigInteger.ONE.shiftLeft(256));
+        DependencyManager.injectBlockchain(blockchain);
+
+        Block block = new Block(signedTransactions(2), blockchain.getGenesisBlock().getBlockHash());
+        Assert.assertTrue(VerificationUtil.verifyBlockHeader(block.getBlockHeader()));
+
+        block.getBlockHeader().setPreviousHash(new byte[]{1, 2, 3});
+        Assert.assertFalse(VerificationUtil.verifyBlockHeader(block.getBlockHeader()));
+        Assert.assertFalse(VerificationUtil.verifyBlockContent(block));
+
+        block.getBlockHeader().setPreviousHash(blockchain.getGenesisBlock().getBlockHash());
+        block.getBlockHeader().setTransactionListHash(null);
+        Assert.assertFalse(VerificationUtil.verifyBlockContent(block));
+
+        blockchain.addBlock(block);
+        Assert.assertEquals(1, blockchain.getChain().size());
+    }
+}
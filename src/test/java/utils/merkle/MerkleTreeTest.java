@@ -0,0 +1,155 @@
+package utils.merkle;
+
+import models.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import utils.SHA3Util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MerkleTreeTest {
+
+    private final int defaultThreshold = MerkleTree.getParallelThreshold();
+
+    @After
+    public void tearDown(){
+        MerkleTree.setParallelThreshold(defaultThreshold);
+    }
+
+    private static List<Transaction> transactions(int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction("sender".getBytes(), "receiver".getBytes(), 1.0, i, 0.1, 10.0);
+            transaction.setTxId(SHA3Util.hash256(("transaction" + i).getBytes()));
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Calculates the root straight from the definition: hash pairs of a layer, the last hash of an odd layer is
+     * paired with itself
+     */
+    private static byte[] expectedRoot(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return SHA3Util.hash256((Serializable) new ArrayList<Transaction>());
+        }
+        List<byte[]> layer = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            layer.add(transaction.getTxId());
+        }
+        while (layer.size() > 1) {
+            List<byte[]> nextLayer = new ArrayList<>();
+            for (int i = 0; i < layer.size(); i += 2) {
+                byte[] right = (i + 1 < layer.size()) ? layer.get(i + 1) : layer.get(i);
+                nextLayer.add(SHA3Util.hash256(concat(layer.get(i), right)));
+            }
+            layer = nextLayer;
+        }
+        return layer.get(0);
+    }
+
+    private static void assertSamePaths(List<Transaction> transactions, MerkleTree expected, MerkleTree actual) {
+        for (Transaction transaction : transactions) {
+            List<byte[]> expectedPath = expected.getHashesForTransactionHash(transaction.getTxId());
+            List<byte[]> actualPath = actual.getHashesForTransactionHash(transaction.getTxId());
+            Assert.assertEquals(expectedPath.size(), actualPath.size());
+            for (int i = 0; i < expectedPath.size(); i++) {
+                Assert.assertArrayEquals(expectedPath.get(i), actualPath.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialParallelAndAppendedTreesHaveSameRoot(){
+        List<Transaction> transactions = new ArrayList<>();
+        MerkleTree appended = new MerkleTree();
+
+        for (int count = 0; count <= 70; count++) {
+            MerkleTree.setParallelThreshold(Integer.MAX_VALUE);
+            MerkleTree sequential = new MerkleTree(transactions);
+            MerkleTree.setParallelThreshold(1);
+            MerkleTree parallel = new MerkleTree(transactions);
+
+            byte[] expected = expectedRoot(transactions);
+            Assert.assertArrayEquals("count " + count, expected, sequential.getMerkleTreeRoot());
+            Assert.assertArrayEquals("count " + count, expected, parallel.getMerkleTreeRoot());
+            Assert.assertArrayEquals("count " + count, expected, appended.getMerkleTreeRoot());
+            Assert.assertEquals(count, appended.size());
+            assertSamePaths(transactions, sequential, parallel);
+            assertSamePaths(transactions, sequential, appended);
+
+            Transaction transaction = transactions(count + 1).get(count);
+            transactions.add(transaction);
+            appended.append(transaction);
+        }
+    }
+
+    @Test
+    public void testParallelRootMatchesSequentialRoot(){
+        for (int count : new int[]{1001, 3001}) {
+            List<Transaction> transactions = transactions(count);
+
+            MerkleTree.setParallelThreshold(Integer.MAX_VALUE);
+            MerkleTree sequential = new MerkleTree(transactions);
+            MerkleTree.setParallelThreshold(2);
+            MerkleTree parallel = new MerkleTree(transactions);
+
+            Assert.assertArrayEquals("count " + count, expectedRoot(transactions), sequential.getMerkleTreeRoot());
+            Assert.assertArrayEquals("count " + count, sequential.getMerkleTreeRoot(), parallel.getMerkleTreeRoot());
+        }
+    }
+
+    @Test
+    public void testPathLeadsToRoot(){
+        List<Transaction> transactions = transactions(7);
+        MerkleTree merkleTree = new MerkleTree(transactions);
+
+        List<byte[]> path = merkleTree.getHashesForTransactionHash(transactions.get(6).getTxId());
+
+        Assert.assertEquals(4, path.size());
+        Assert.assertArrayEquals(transactions.get(6).getTxId(), path.get(0));
+        byte[] parent = SHA3Util.hash256(concat(path.get(0), path.get(0)));
+        Assert.assertArrayEquals(parent, path.get(1));
+        Assert.assertArrayEquals(merkleTree.getMerkleTreeRoot(), path.get(3));
+    }
+
+    @Test
+    public void testUnknownTransactionReturnsRoot(){
+        MerkleTree merkleTree = new MerkleTree(transactions(5));
+
+        List<byte[]> path = merkleTree.getHashesForTransactionHash(SHA3Util.hash256("unknown".getBytes()));
+
+        Assert.assertEquals(1, path.size());
+        Assert.assertArrayEquals(merkleTree.getMerkleTreeRoot(), path.get(0));
+    }
+
+    @Test
+    public void testMixedTxIdSizesAreDetected(){
+        List<Transaction> transactions = transactions(4);
+        Assert.assertTrue(MerkleTree.hasUniformTxIds(transactions));
+        Assert.assertTrue(MerkleTree.hasUniformTxIds(new ArrayList<>()));
+
+        transactions.get(2).setTxId(new byte[]{1, 2, 3});
+        Assert.assertFalse(MerkleTree.hasUniformTxIds(transactions));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendingMixedTxIdSizeIsRejected(){
+        MerkleTree merkleTree = new MerkleTree(transactions(3));
+        Transaction transaction = transactions(1).get(0);
+        transaction.setTxId(new byte[]{1, 2, 3});
+
+        merkleTree.append(transaction);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}